@@ -35,6 +35,8 @@ public abstract class ValueTrackerProducer<T extends LogEntry, S, U> implements
   private Map<String, S> logproducer2dataset = new HashMap<>();
   private final LogReader<T> logReader;
   private final DataSetFactory<S> dataFactory;
+  //if set, entries are handed to it instead of being added to the data sets
+  private LogProcessor<T> forward = null;
   
   public ValueTrackerProducer(LogReader<T> logReader, DataSetFactory<S> dataFactory) {
     this.logReader = logReader;
@@ -48,8 +50,26 @@ public abstract class ValueTrackerProducer<T extends LogEntry, S, U> implements
     return this.logproducer2dataset;
   }
   
+  /**
+   * Reads the log and hands the entries to the processor as they are read, 
+   * instead of computing the data sets
+   */
+  public void processLog(File logFile, LogProcessor<T> processor) throws IOException {
+    this.forward = processor;
+    try {
+      this.logReader.parseLog(logFile);
+    } finally {
+      this.forward = null;
+    }
+  }
+  
   @Override
   public void process(T entry) {
+    if(forward != null) {
+      forward.process(entry);
+      return;
+    }
+    
     if(logproducer2dataset == null)
       logproducer2dataset = new HashMap<>();
     
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.formats.st;
+
+import java.nio.ByteBuffer;
+
+import edu.cmu.sv.modelinference.common.generators.LogParser;
+import edu.cmu.sv.modelinference.common.generators.ParserException;
+import edu.cmu.sv.modelinference.common.parser.LineTokenizer;
+import edu.cmu.sv.modelinference.common.parser.StringPool;
+
+/**
+ * Produces the same entries as {@link STParser}, but tokenizes the raw entry in place
+ * instead of using String.split, and parses the bytes directly when used with
+ * a reader that supplies them, e.g., the ParallelLogReader. Call signs, aircraft types,
+ * registrations and statuses are interned. This parser is thread-safe.
+ *
+ * @author Kasper Luckow
+ */
+public class FastSTParser implements LogParser<STEntry> {
+
+  private static final int FIELDS = 11;
+
+  private final StringPool stringPool = new StringPool();
+  private final ThreadLocal<LineTokenizer> tokenizers = new ThreadLocal<LineTokenizer>() {
+    @Override
+    protected LineTokenizer initialValue() {
+      return new LineTokenizer(FIELDS);
+    }
+  };
+
+  @Override
+  public STEntry parse(String raw) throws ParserException {
+    LineTokenizer tokenizer = tokenizers.get();
+    tokenizer.tokenize(raw);
+    return createEntry(tokenizer);
+  }
+
+  @Override
+  public STEntry parse(ByteBuffer buf, int from, int to) throws ParserException {
+    LineTokenizer tokenizer = tokenizers.get();
+    if(tokenizer.tokenize(buf, from, to) < 0)
+      return LogParser.super.parse(buf, from, to);
+    return createEntry(tokenizer);
+  }
+
+  private STEntry createEntry(LineTokenizer tokenizer) throws ParserException {
+    if(tokenizer.getTokenCount() != FIELDS) //Not a valid entry (e.g. newline)
+      throw new ParserException("Invalid entry length");
+    try {
+      double time = tokenizer.getFloat(0);
+      long utcTime = tokenizer.getLong(1);
+      String callSign = tokenizer.getString(2, stringPool);
+      String acType = tokenizer.getString(3, stringPool);
+      String registration = tokenizer.getString(4, stringPool);
+      String status = tokenizer.getString(5, stringPool);
+      double x = tokenizer.getDouble(6);
+      double y = tokenizer.getDouble(7);
+      double z = tokenizer.getDouble(8);
+      double phi = tokenizer.getDouble(9);
+      double speed = tokenizer.getDouble(10);
+      return new STEntry(time, utcTime, callSign, acType, status, registration, x, y, z, phi, speed);
+    } catch (NumberFormatException e) { // Not a valid entry
+      throw new ParserException(e);
+    }
+  }
+}
@@ -15,15 +15,19 @@
  */
 package edu.cmu.sv.modelinference.common.formats.st;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * @author Kasper Luckow
@@ -55,77 +59,132 @@ public class GridFactory<S extends Copyable<S>> {
       }
     }
     
-    private final NavigableMap<Double, NavigableMap<Double, Collection<T>>> xTree;
-    private final Map<T, Collection<T>> obj2coll;
+    //cells are indexed as given by the layout. Both the cells and the object index,
+    //which is split into buckets by the hash codes of the objects, may be shared with
+    //copies of this grid. Empty cells and buckets are null
+    private final SharedArray<Collection<T>> cells;
+    private final SharedArray<Map<T, Integer>> obj2cell;
+    private final Axis xAxis, yAxis;
+    private final GridLayout layout;
     
-    private Grid(NavigableMap<Double, NavigableMap<Double, Collection<T>>> xTree) {
-      this(xTree, new HashMap<>());
+    private Grid(Axis xAxis, Axis yAxis, GridLayout layout) {
+      this(new SharedArray<>(layout.getCellCount(), HashSet::new, HashSet::new), 
+          new SharedArray<>(INDEX_BUCKETS, HashMap::new, HashMap::new), xAxis, yAxis, layout);
     }
 
-    private Grid(NavigableMap<Double, NavigableMap<Double, Collection<T>>> xTree, Map<T, Collection<T>> obj2coll) {
-      this.xTree = xTree;
-      this.obj2coll = obj2coll;
+    private Grid(SharedArray<Collection<T>> cells, SharedArray<Map<T, Integer>> obj2cell, 
+        Axis xAxis, Axis yAxis, GridLayout layout) {
+      this.cells = cells;
+      this.obj2cell = obj2cell;
+      this.xAxis = xAxis;
+      this.yAxis = yAxis;
+      this.layout = layout;
+    }
+    
+    public GridLayout getLayout() {
+      return this.layout;
     }
     
     public Collection<Cell<T>> getCells() {
-      Set<Cell<T>> cells = new HashSet<>(); 
-      int xCount = 0;
-      for(Entry<Double, NavigableMap<Double, Collection<T>>> x : xTree.entrySet()) {
-        int yCount = 0;
-        for(Entry<Double, Collection<T>> y : x.getValue().entrySet()) {
-          cells.add(new Cell<>(xCount, yCount, y.getValue()));
-          yCount++;
-        }
-        xCount++;
+      List<Cell<T>> cellList = new ArrayList<>(getCellCount());
+      for(int x = 0; x < layout.getHorizCells(); x++) {
+        for(int y = 0; y < layout.getVertCells(); y++)
+          cellList.add(new Cell<>(x, y, getCell(layout.getCellIndex(x, y))));
       }
-      return cells;
+      return cellList;
     }
     
-    public Collection<T> getCell(Coord2d coord) {
-      return getCellEntry(coord).getValue();
+    public int getCellCount() {
+      return cells.size();
     }
-
-    private Entry<Double, Collection<T>> getCellEntry(Coord2d coord) {
-      NavigableMap<Double, Collection<T>> ytree = getYtree(coord);
-      return ytree.floorEntry(coord.getY());
+    
+    /**
+     * @return an unmodifiable view of the contents of the cell with the given layout index
+     */
+    public Collection<T> getCell(int cell) {
+      Collection<T> data = cells.get(cell);
+      return (data != null) ? Collections.unmodifiableCollection(data) : Collections.<T>emptySet();
+    }
+    
+    /**
+     * @return the number of objects in the cell with the given layout index
+     */
+    public int getOccupancy(int cell) {
+      Collection<T> data = cells.get(cell);
+      return (data != null) ? data.size() : 0;
+    }
+    
+    /**
+     * @return the layout index of the cell containing the coordinate. Coordinates 
+     * outside the grid bounds belong to the nearest boundary cell
+     */
+    public int getCellIndex(double x, double y) {
+      return layout.getCellIndex(xAxis.indexOf(x), yAxis.indexOf(y));
     }
     
-    private NavigableMap<Double, Collection<T>> getYtree(Coord2d coord) {
-      return this.xTree.floorEntry(coord.getX()).getValue();
+    public Collection<T> getCell(Coord2d coord) {
+      return getCell(getCellIndex(coord.getX(), coord.getY()));
     }
     
     public void remove(T obj) {
-      if(obj2coll.containsKey(obj)) {
-        obj2coll.get(obj).remove(obj);
-        obj2coll.remove(obj);
+      Integer cell = getCellOf(obj);
+      if(cell != null) {
+        obj2cell.getWritable(getBucket(obj)).remove(obj);
+        cells.getWritable(cell).remove(obj);
       }
     }
     
     public void add(T obj, Coord2d coord) {
-      if(obj2coll.containsKey(obj)) { // establish invariant, that obj is ONLY in one cell
-        obj2coll.get(obj).remove(obj);
-        obj2coll.remove(obj);
-      } 
-      NavigableMap<Double, Collection<T>> ytree = getYtree(coord);
-      Collection<T> cell = ytree.floorEntry(coord.getY()).getValue();
-      cell.add(obj);
-      obj2coll.put(obj, cell);
+      add(obj, coord.getX(), coord.getY());
+    }
+    
+    public void add(T obj, double x, double y) {
+      int cell = getCellIndex(x, y);
+      Integer prev = getCellOf(obj);
+      if(prev != null) { // establish invariant, that obj is ONLY in one cell
+        if(prev == cell)
+          return;
+        cells.getWritable(prev).remove(obj);
+      }
+      cells.getWritable(cell).add(obj);
+      obj2cell.getWritable(getBucket(obj)).put(obj, cell);
     }
     
     public boolean contains(T obj) {
-      return obj2coll.containsKey(obj);
+      return getCellOf(obj) != null;
     }
     
     public boolean contains(T obj, Coord2d coord) {
-      Collection<T> cell = getCell(coord);
-      if(cell == null)
-        return false;
-      return cell.contains(obj);
+      return contains(obj, coord.getX(), coord.getY());
+    }
+    
+    public boolean contains(T obj, double x, double y) {
+      Integer cell = getCellOf(obj);
+      return cell != null && cell == getCellIndex(x, y);
+    }
+    
+    private Integer getCellOf(T obj) {
+      Map<T, Integer> bucket = obj2cell.get(getBucket(obj));
+      return (bucket != null) ? bucket.get(obj) : null;
+    }
+    
+    private static int getBucket(Object obj) {
+      int h = obj.hashCode();
+      return (h ^ (h >>> 16)) & (INDEX_BUCKETS - 1);
+    }
+    
+    //empty cells are equal to missing ones
+    private Collection<T> getCellOrEmpty(int cell) {
+      Collection<T> data = cells.get(cell);
+      return (data != null) ? data : Collections.<T>emptySet();
     }
     
     @Override  
     public int hashCode() {
-      return com.google.common.base.Objects.hashCode(xTree);  
+      int h = 1;
+      for(int i = 0; i < getCellCount(); i++)
+        h = 31 * h + getCellOrEmpty(i).hashCode();
+      return h;
     }
     
     @Override  
@@ -138,42 +197,38 @@ public class GridFactory<S extends Copyable<S>> {
       }
       
       final Grid<?> other = (Grid<?>) obj;
-      return com.google.common.base.Objects.equal(this.xTree, other.xTree);
+      if(!this.xAxis.equals(other.xAxis) || !this.yAxis.equals(other.yAxis) || 
+          this.getCellCount() != other.getCellCount())
+        return false;
+      for(int i = 0; i < getCellCount(); i++) {
+        if(!getCellOrEmpty(i).equals(other.getCellOrEmpty(i)))
+          return false;
+      }
+      return true;
     }
     
+    /**
+     * Copies the grid in constant time: the copy shares the cells, the object 
+     * index and the objects with this grid. A modification afterwards copies 
+     * only what it touches: the modified cells, the buckets of the index holding 
+     * the moved objects, and the (constant depth) paths to them in the 
+     * {@link SharedArray}s. The objects are not copied, so they should be immutable
+     */
     @Override
-    public Grid<T> copy() { // super, super, super expensive
-      Map<T, Collection<T>> o2colcpy = new HashMap<>();
-      NavigableMap<Double, NavigableMap<Double, Collection<T>>> cpyXTree = new TreeMap<>();
-      for(double x : xTree.keySet()) {
-        NavigableMap<Double, Collection<T>> cpyYTree = new TreeMap<>();
-        cpyXTree.put(x, cpyYTree);
-        NavigableMap<Double, Collection<T>> yEntry = xTree.get(x);
-        for(double y : yEntry.keySet()) {
-          Collection<T> oldColl = yEntry.get(y);
-          Set<T> newSet = new HashSet<>();
-          for(T obj : oldColl) {
-            T newObj = obj.copy();
-            newSet.add(newObj);
-            o2colcpy.put(newObj, newSet);
-          }
-          cpyYTree.put(y, newSet);
-        }
-      }
-      return new Grid<>(cpyXTree,o2colcpy);
+    public Grid<T> copy() {
+      return new Grid<>(cells.copy(), obj2cell.copy(), xAxis, yAxis, layout);
     }
     
     @Override
     public String toString() {
       StringBuilder sb = new StringBuilder();
       
-      int xCount = 0;
-      for(Entry<Double, NavigableMap<Double, Collection<T>>> x : xTree.entrySet()) {
-        int yCount = 0;
-        for(Entry<Double, Collection<T>> y : x.getValue().entrySet()) {
-          if(!y.getValue().isEmpty()) {
-            sb.append('[').append(xCount).append(',').append(yCount).append("]:{");
-            Iterator<T> iter = y.getValue().iterator();
+      for(int x = 0; x < layout.getHorizCells(); x++) {
+        for(int y = 0; y < layout.getVertCells(); y++) {
+          Collection<T> cell = getCellOrEmpty(layout.getCellIndex(x, y));
+          if(!cell.isEmpty()) {
+            sb.append('[').append(x).append(',').append(y).append("]:{");
+            Iterator<T> iter = cell.iterator();
             while(iter.hasNext()) {
               sb.append(iter.next().toString());
               if(iter.hasNext())
@@ -181,41 +236,198 @@ public class GridFactory<S extends Copyable<S>> {
             }
             sb.append("}; ");
           }
-          yCount++;
         }
-        xCount++;
       }
       String s = sb.toString();
       return (s.length() > 2) ? s.substring(0, s.length()-2) : s; //ugly
     }
   }
   
-  private final double xfac, yfac;
-  private final Coord2d lowerLeft, upperRight;
-  private final int horizPartitions, vertPartitions;
+  /**
+   * The lower bounds of the cells along one axis. A coordinate belongs to the 
+   * cell with the greatest lower bound less than or equal to it. The bounds are
+   * accumulated by repeatedly adding the cell width, so the index computed
+   * arithmetically is only a guess that is corrected against the bounds.
+   */
+  private static class Axis {
+    private final double lower, fac;
+    private final double[] bounds;
+    
+    Axis(double lower, double fac, int partitions) {
+      //partitions whose accumulated lower bounds coincide (e.g. for a zero-width
+      //bounding box) collapse into a single cell
+      Set<Double> distinct = new TreeSet<>();
+      int part = 0;
+      for(double acc = lower; part < partitions; acc += fac) {
+        distinct.add(acc);
+        part++;
+      }
+      this.bounds = new double[distinct.size()];
+      int i = 0;
+      for(double bound : distinct)
+        bounds[i++] = bound;
+      this.lower = lower;
+      this.fac = fac;
+    }
+    
+    int size() {
+      return bounds.length;
+    }
+    
+    int indexOf(double coord) {
+      int last = bounds.length - 1;
+      if(last <= 0)
+        return 0;
+      if(Double.isNaN(coord))
+        return last;
+      double guess = Math.floor((coord - lower) / fac);
+      int i = (guess <= 0) ? 0 : (guess >= last) ? last : (int)guess;
+      //same ordering of the bounds as Double.compareTo
+      while(i < last && Double.compare(bounds[i + 1], coord) <= 0)
+        i++;
+      while(i > 0 && Double.compare(bounds[i], coord) > 0)
+        i--;
+      return i;
+    }
+    
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(bounds);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+      if(!(obj instanceof Axis))
+        return false;
+      return Arrays.equals(bounds, ((Axis)obj).bounds);
+    }
+  }
+  
+  /**
+   * Array of mutable containers (e.g., sets) that is copied in constant time. The 
+   * containers are stored in the leaves of a tree with NODE_SIZE children per node. 
+   * Copies share the nodes and the containers. Nodes and containers are only modified 
+   * in place by the array that created them; otherwise, they are copied first, together 
+   * with the nodes on the path to them. Containers are created when they are first 
+   * written, so a missing container (null) is an empty one.
+   */
+  private static class SharedArray<E> {
+    private static final int BITS = 5;
+    private static final int NODE_SIZE = 1 << BITS;
+    private static final int MASK = NODE_SIZE - 1;
+    
+    private static class Node {
+      private final Object owner;
+      private final Object[] slots;
+      //for leaves, the slots with a container created by the owner
+      private int ownedSlots = 0;
+      
+      Node(Object owner, Object[] slots) {
+        this.owner = owner;
+        this.slots = slots;
+      }
+    }
+    
+    private final int size;
+    private final int shift;
+    private final Supplier<E> factory;
+    private final UnaryOperator<E> copier;
+    private Node root;
+    //identifies the nodes created by this array
+    private Object owner = new Object();
+    
+    SharedArray(int size, Supplier<E> factory, UnaryOperator<E> copier) {
+      int shift = 0;
+      while(((long)NODE_SIZE << shift) < size)
+        shift += BITS;
+      this.size = size;
+      this.shift = shift;
+      this.factory = factory;
+      this.copier = copier;
+      this.root = new Node(owner, new Object[NODE_SIZE]);
+    }
+    
+    private SharedArray(SharedArray<E> other) {
+      this.size = other.size;
+      this.shift = other.shift;
+      this.factory = other.factory;
+      this.copier = other.copier;
+      this.root = other.root;
+    }
+    
+    int size() {
+      return size;
+    }
+    
+    /**
+     * @return the container at the index, or null if it has not been written. It must not be modified
+     */
+    @SuppressWarnings("unchecked")
+    E get(int idx) {
+      Node node = root;
+      for(int s = shift; s > 0; s -= BITS) {
+        node = (Node)node.slots[(idx >>> s) & MASK];
+        if(node == null)
+          return null;
+      }
+      return (E)node.slots[idx & MASK];
+    }
+    
+    /**
+     * @return the container at the index, which may be modified
+     */
+    @SuppressWarnings("unchecked")
+    E getWritable(int idx) {
+      if(root.owner != owner)
+        root = new Node(owner, root.slots.clone());
+      Node node = root;
+      for(int s = shift; s > 0; s -= BITS) {
+        int slot = (idx >>> s) & MASK;
+        Node child = (Node)node.slots[slot];
+        if(child == null)
+          node.slots[slot] = child = new Node(owner, new Object[NODE_SIZE]);
+        else if(child.owner != owner)
+          node.slots[slot] = child = new Node(owner, child.slots.clone());
+        node = child;
+      }
+      int slot = idx & MASK;
+      if((node.ownedSlots & (1 << slot)) == 0) {
+        E elem = (E)node.slots[slot];
+        node.slots[slot] = (elem != null) ? copier.apply(elem) : factory.get();
+        node.ownedSlots |= 1 << slot;
+      }
+      return (E)node.slots[slot];
+    }
+    
+    /**
+     * @return a copy sharing all nodes and containers with this array. Neither 
+     * array modifies them in place afterwards
+     */
+    SharedArray<E> copy() {
+      this.owner = new Object();
+      return new SharedArray<>(this);
+    }
+  }
+  
+  //number of buckets of the object index of a grid
+  private static final int INDEX_BUCKETS = 1024;
+  
+  private final Axis xAxis, yAxis;
+  private final GridLayout layout;
   
   public GridFactory(Coord2d lowerLeft, Coord2d upperRight, int horizPartitions, int vertPartitions) {
-    xfac = Math.abs((upperRight.getX() - lowerLeft.getX())) / (double)horizPartitions;
-    yfac = Math.abs((upperRight.getY() - lowerLeft.getY())) / (double)vertPartitions;
-    this.lowerLeft = lowerLeft;
-    this.upperRight = upperRight;
-    this.horizPartitions = horizPartitions;
-    this.vertPartitions = vertPartitions;
+    double xfac = Math.abs((upperRight.getX() - lowerLeft.getX())) / (double)horizPartitions;
+    double yfac = Math.abs((upperRight.getY() - lowerLeft.getY())) / (double)vertPartitions;
+    this.xAxis = new Axis(lowerLeft.getX(), xfac, horizPartitions);
+    this.yAxis = new Axis(lowerLeft.getY(), yfac, vertPartitions);
+    this.layout = new GridLayout(xAxis.size(), yAxis.size());
+  }
+  
+  public GridLayout getLayout() {
+    return this.layout;
   }
   
   public Grid<S> build() {
-    NavigableMap<Double, NavigableMap<Double, Collection<S>>> xTree = new TreeMap<>();    
-    int xPart = 0;
-    for(double xAcc = lowerLeft.getX(); xPart < horizPartitions; xAcc += xfac) {
-      NavigableMap<Double, Collection<S>> yTree = new TreeMap<>();
-      int yPart = 0;
-      for(double yAcc = lowerLeft.getY(); yPart < vertPartitions; yAcc += yfac) {
-        yTree.put(yAcc, new HashSet<>());
-        yPart++;
-      }
-      xTree.put(xAcc, yTree);
-      xPart++;
-    }
-    return new Grid<>(xTree);
+    return new Grid<>(xAxis, yAxis, layout);
   }  
 }
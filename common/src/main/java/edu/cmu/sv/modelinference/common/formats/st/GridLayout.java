@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.formats.st;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.sv.modelinference.common.model.VariableSchema;
+
+/**
+ * The cell structure of the grids built by a {@link GridFactory}. Cells are 
+ * numbered x-major, and each cell has a variable name of the form q_x_y. The
+ * names are shared by all states over grids with this layout: the slot of a
+ * cell in the variable schema is its index.
+ * 
+ * @author Kasper Luckow
+ */
+public class GridLayout {
+  
+  private final int horizCells, vertCells;
+  private final VariableSchema schema;
+  
+  public GridLayout(int horizCells, int vertCells) {
+    this.horizCells = horizCells;
+    this.vertCells = vertCells;
+    List<String> names = new ArrayList<>(horizCells * vertCells);
+    for(int x = 0; x < horizCells; x++) {
+      for(int y = 0; y < vertCells; y++)
+        names.add("q_" + x + "_" + y);
+    }
+    this.schema = new VariableSchema(names);
+  }
+  
+  public int getHorizCells() {
+    return horizCells;
+  }
+  
+  public int getVertCells() {
+    return vertCells;
+  }
+  
+  public int getCellCount() {
+    return schema.size();
+  }
+  
+  public int getCellIndex(int x, int y) {
+    return x * vertCells + y;
+  }
+  
+  public String getCellName(int cell) {
+    return schema.getName(cell);
+  }
+  
+  /**
+   * @return the index of the cell with the given variable name, or -1 if there is none
+   */
+  public int getCellIndex(String name) {
+    return schema.getSlot(name);
+  }
+  
+  public VariableSchema getSchema() {
+    return schema;
+  }
+  
+  @Override
+  public int hashCode() {
+    return 31 * horizCells + vertCells;
+  }
+  
+  @Override
+  public boolean equals(Object obj) {
+    if(obj == null)
+      return false;
+    if(getClass() != obj.getClass())
+      return false;
+    GridLayout other = (GridLayout)obj;
+    return horizCells == other.horizCells && vertCells == other.vertCells;
+  }
+}
@@ -15,41 +15,155 @@
  */
 package edu.cmu.sv.modelinference.common.formats.st;
 
-import java.util.Iterator;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
-import edu.cmu.sv.modelinference.common.formats.st.GridFactory.Grid.Cell;
 import edu.cmu.sv.modelinference.common.model.Assignment;
 import edu.cmu.sv.modelinference.common.model.State;
+import edu.cmu.sv.modelinference.common.model.VariableSchema;
 
 /**
+ * A state of the grid given by the number of vehicles in each cell. The counts
+ * are stored in an int array indexed by the cells of the {@link GridLayout}; 
+ * the "q_x_y" assignments are only created when they are requested.
+ * 
  * @author Kasper Luckow
  */
 public class GridState extends State {
 
+  private final GridLayout layout;
+  private final int[] occupancy;
   private final GridFactory.Grid<Vehicle> grid;
+  private final int hash;
+  
+  private final List<Assignment<? extends Number>> assignmentView = new AbstractList<Assignment<? extends Number>>() {
+    @Override
+    public Assignment<? extends Number> get(int index) {
+      if(index < 0 || index >= occupancy.length)
+        throw new IndexOutOfBoundsException("Index: " + index);
+      return getAssignment(index);
+    }
+
+    @Override
+    public int size() {
+      return occupancy.length;
+    }
+  };
 
   public GridState(GridFactory.Grid<Vehicle> grid) {
+    this(grid.getLayout(), countOccupancy(grid), grid);
+  }
+  
+  public GridState(GridLayout layout, int[] occupancy) {
+    this(layout, occupancy.clone(), null);
+  }
+  
+  private GridState(GridLayout layout, int[] occupancy, GridFactory.Grid<Vehicle> grid) {
+    if(occupancy.length != layout.getCellCount())
+      throw new IllegalArgumentException("Expected " + layout.getCellCount() + " cells, got " + occupancy.length);
+    this.layout = layout;
+    this.occupancy = occupancy;
     this.grid = grid;
-    for(Cell<Vehicle> cell : grid.getCells()) {
-      Assignment<Integer> assign = new Assignment<Integer>("q_" + cell.getX() + "_" + cell.getY(),
-          (cell.getData() == null) ?
-              0 :
-              cell.getData().size());
-      this.addAssignment(assign);
-    }
+    this.hash = computeHash();
+  }
+  
+  /**
+   * Creates a state with the current occupancy of the grid without keeping
+   * a reference to the grid, i.e., {@link #getGrid()} will return null
+   */
+  public static GridState fromOccupancy(GridFactory.Grid<Vehicle> grid) {
+    return new GridState(grid.getLayout(), countOccupancy(grid), null);
+  }
+  
+  //the occupancy is never modified, so it can be shared
+  @Override
+  public GridState detachedCopy() {
+    return new GridState(layout, occupancy, null);
+  }
+  
+  private static int[] countOccupancy(GridFactory.Grid<Vehicle> grid) {
+    int[] occupancy = new int[grid.getCellCount()];
+    for(int cell = 0; cell < occupancy.length; cell++)
+      occupancy[cell] = grid.getOccupancy(cell);
+    return occupancy;
+  }
+  
+  //same value as State.hashCode, i.e., the hash of the set of assignments
+  private int computeHash() {
+    int h = 0;
+    for(int cell = 0; cell < occupancy.length; cell++)
+      h += 31 * (31 + layout.getCellName(cell).hashCode()) + occupancy[cell];
+    return h;
   }
   
+  /**
+   * @return the grid this state was created from, or null if the state is detached from it
+   */
   public GridFactory.Grid<Vehicle> getGrid() {
     return this.grid;
   }
   
+  public GridLayout getLayout() {
+    return this.layout;
+  }
+  
+  public int getOccupancy(int cell) {
+    return this.occupancy[cell];
+  }
+  
+  @Override
+  public List<Assignment<? extends Number>> getAssignments() {
+    return this.assignmentView;
+  }
+  
+  @Override
+  public VariableSchema getSchema() {
+    return layout.getSchema();
+  }
+  
+  @Override
+  public Assignment<? extends Number> getAssignment(int cell) {
+    return new Assignment<Integer>(layout.getCellName(cell), occupancy[cell]);
+  }
+  
+  @Override
+  public int getIntValue(int cell) {
+    return occupancy[cell];
+  }
+  
+  @Override
+  public void addAssignment(Assignment<? extends Number> assign) {
+    throw new UnsupportedOperationException("The assignments of a grid state are given by the grid");
+  }
+  
+  @Override
+  public void addAllAssignments(Collection<Assignment<? extends Number>> assigns) {
+    throw new UnsupportedOperationException("The assignments of a grid state are given by the grid");
+  }
+  
+  @Override
+  public boolean equals(Object other) {
+    if(other instanceof GridState) {
+      GridState otherState = (GridState) other;
+      if(this.layout.equals(otherState.layout))
+        return this.hash == otherState.hash && Arrays.equals(this.occupancy, otherState.occupancy);
+    }
+    return super.equals(other);
+  }
+  
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+  
   public String toSimpleString() {
     StringBuilder sb = new StringBuilder();
-    Iterator<Assignment<?>> assignmentIter = this.assignments.iterator();
-    while(assignmentIter.hasNext()) {
-      sb.append(assignmentIter.next().toString());
-      if(assignmentIter.hasNext())
+    for(int cell = 0; cell < occupancy.length; cell++) {
+      if(cell > 0)
         sb.append(", ");
+      sb.append(layout.getCellName(cell)).append('=').append(occupancy[cell]);
     }
     return sb.toString();
   }
@@ -20,6 +20,16 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.cli.ParseException;
 
+import edu.cmu.sv.modelinference.common.formats.st.util.DimensionsIndex;
+import edu.cmu.sv.modelinference.common.formats.st.util.DimensionsProvider;
+import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder;
+import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder.Dimensions;
+import edu.cmu.sv.modelinference.common.formats.st.util.SampledDimensionsFinder;
+import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
+import edu.cmu.sv.modelinference.common.parser.LogReader;
+import edu.cmu.sv.modelinference.common.parser.ParallelLogReader;
+import edu.cmu.sv.modelinference.common.parser.SequentialLogReader;
+
 /**
  * @author Kasper Luckow
  *
@@ -59,5 +69,54 @@ public class STConfig {
 	    }
 	    return parts;
 	  }
+	  
+	  public static Dimensions extractBoundingBox(String optionString) throws ParseException {
+	    String[] vals = optionString.trim().split(",");
+	    if(vals.length != 4)
+	      throw new ParseException("Bounding box must be of the form minX,minY,maxX,maxY");
+	    try {
+	      return new Dimensions(Double.parseDouble(vals[0].trim()), Double.parseDouble(vals[1].trim()), 
+	          Double.parseDouble(vals[2].trim()), Double.parseDouble(vals[3].trim()));
+	    } catch (NumberFormatException e) {
+	      throw new ParseException("Bounding box must be of the form minX,minY,maxX,maxY: " + e.getMessage());
+	    }
+	  }
+	  
+	  /**
+	   * @param boundingBox user supplied bounding box (see {@link #extractBoundingBox(String)}) or null
+	   * @param useIndex read the dimensions from a sidecar index, creating it if needed
+	   * @param sample estimate the dimensions from samples of the log instead of reading all of it
+	   * @throws ParseException if the bounding box is malformed, or given together with useIndex or sample
+	   */
+	  public static DimensionsProvider createDimensionsProvider(String boundingBox, boolean useIndex, boolean sample) throws ParseException {
+	    return createDimensionsProvider(boundingBox, useIndex, sample, false);
+	  }
+	  
+	  /**
+	   * @param parallel read the whole log with the {@link ParallelLogReader} when finding the dimensions
+	   * @see #createDimensionsProvider(String, boolean, boolean)
+	   */
+	  public static DimensionsProvider createDimensionsProvider(String boundingBox, boolean useIndex, boolean sample, 
+	      boolean parallel) throws ParseException {
+	    if(boundingBox != null) {
+	      if(useIndex || sample)
+	        throw new ParseException("A bounding box cannot be combined with a dimensions index or sampling");
+	      return DimensionsProvider.FIXED(extractBoundingBox(boundingBox));
+	    }
+	    DimensionsProvider provider = (sample) ? new SampledDimensionsFinder() : 
+	      new GridDimensionsFinder(createLogReader(parallel, null));
+	    return (useIndex) ? new DimensionsIndex(provider) : provider;
+	  }
+	  
+	  /**
+	   * Creates a reader for ST logs. The parallel reader uses the {@link FastSTParser}, 
+	   * which is thread-safe; both readers hand the entries to the processors in file order.
+	   * @param filter filter of the entries or null
+	   */
+	  public static LogReader<STEntry> createLogReader(boolean parallel, LogEntryFilter<STEntry> filter) {
+	    if(parallel)
+	      return new ParallelLogReader<>(new FastSTParser(), filter);
+	    return new SequentialLogReader<>(new STParser(), filter);
+	  }
   public static final String LOG_CONFIG_NAME = "st";
 }
@@ -59,7 +59,7 @@ public class STGridStateFactory implements STStateFactory<GridState> {
   //only meant as a quick fix
   @Override
   public GridState finalizeState(GridState currState) {
-    return new GridState(currState.getGrid().copy());
+    return GridState.fromOccupancy(currState.getGrid());
   }
   
   @Override
@@ -71,7 +71,8 @@ public class STGridStateFactory implements STStateFactory<GridState> {
       newGrid = currState.getGrid().copy();
     }
     
-    newGrid.add(vehicleCache.getUnchecked(entry.getCallSign()), Coord2d.project(entry.getPosition()));
+    Coord3d pos = entry.getPosition();
+    newGrid.add(vehicleCache.getUnchecked(entry.getCallSign()), pos.getX(), pos.getY());
     
     return new GridState(newGrid);
   }
@@ -79,14 +80,16 @@ public class STGridStateFactory implements STStateFactory<GridState> {
   @Override
   public boolean isNewState(GridState currState, STEntry entry) {
     Grid<Vehicle> currGrid = currState.getGrid();
+    Coord3d pos = entry.getPosition();
     return !currGrid.contains(
         vehicleCache.getUnchecked(entry.getCallSign()),
-        Coord2d.project(entry.getPosition()));
+        pos.getX(), pos.getY());
   }
 
   @Override
   public void addEntryToState(GridState currState, STEntry entry) {
     Vehicle v = vehicleCache.getUnchecked(entry.getCallSign());
-    currState.getGrid().add(v, Coord2d.project(entry.getPosition()));
+    Coord3d pos = entry.getPosition();
+    currState.getGrid().add(v, pos.getX(), pos.getY());
   }
 }
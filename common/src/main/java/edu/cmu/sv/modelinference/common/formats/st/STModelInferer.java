@@ -18,13 +18,14 @@ package edu.cmu.sv.modelinference.common.formats.st;
 import java.io.File;
 import java.io.IOException;
 
+import edu.cmu.sv.modelinference.common.formats.st.util.DimensionsProvider;
 import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder;
 import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder.Dimensions;
-import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
 import edu.cmu.sv.modelinference.common.model.IRModelGenerator;
 import edu.cmu.sv.modelinference.common.model.Model;
 import edu.cmu.sv.modelinference.common.model.ModelInferer;
-import edu.cmu.sv.modelinference.common.parser.SequentialLogReader;
+import edu.cmu.sv.modelinference.common.model.ShardedModelGenerator;
+import edu.cmu.sv.modelinference.common.parser.ParallelLogReader;
 
 /**
  * @author Kasper Luckow
@@ -35,25 +36,64 @@ public class STModelInferer implements ModelInferer<GridState> {
   
   private final int xPart;
   private final int yPart;
+  private final DimensionsProvider dimProvider;
+  private final int shards;
+  private final boolean parallelRead;
   
   public STModelInferer(int xPart, int yPart) {
+    this(xPart, yPart, null);
+  }
+  
+  /**
+   * @param dimProvider provides the grid bounds. If null, the bounds are found 
+   * by reading the whole log before the model is generated.
+   */
+  public STModelInferer(int xPart, int yPart, DimensionsProvider dimProvider) {
+    this(xPart, yPart, dimProvider, 1);
+  }
+  
+  /**
+   * @param shards the number of shards the log is split into for building the model
+   * in parallel. The model is the same as for a sequential run.
+   */
+  public STModelInferer(int xPart, int yPart, DimensionsProvider dimProvider, int shards) {
+    this(xPart, yPart, dimProvider, shards, false);
+  }
+  
+  /**
+   * @param parallelRead read the log with the {@link ParallelLogReader} when it is 
+   * not sharded. The model is the same as for a sequential read.
+   */
+  public STModelInferer(int xPart, int yPart, DimensionsProvider dimProvider, int shards, boolean parallelRead) {
     this.xPart = xPart;
     this.yPart = yPart;
+    this.dimProvider = dimProvider;
+    this.shards = shards;
+    this.parallelRead = parallelRead;
   }
   
   @Override
   public Model<GridState> generateModel(String logFile) throws IOException {
-    GridDimensionsFinder dimFinder = new GridDimensionsFinder(new LogEntryFilter<STEntry>() {
-      @Override
-      public boolean submitForProcessing(STEntry entry) {
-        return true;
-      }
-    });
-    Dimensions dim = dimFinder.start(new File(logFile));
+    DimensionsProvider provider = dimProvider;
+    if(provider == null) {
+      provider = new GridDimensionsFinder(STConfig.createLogReader(parallelRead, null));
+    }
+    Dimensions dim = provider.getDimensions(new File(logFile));
+    
+    if(shards > 1) {
+      ShardedModelGenerator<STEntry, GridState> shardedGen = new ShardedModelGenerator<>(
+          new FastSTParser(),
+          null,
+          () -> new STGridStateFactory(
+              new Coord2d(dim.minX, dim.minY), 
+              new Coord2d(dim.maxX, dim.maxY),
+              xPart,
+              yPart));
+      return shardedGen.generateModel(new File(logFile), shards);
+    }
     
     IRModelGenerator<STEntry, GridState> irGen = new IRModelGenerator<>(
-        new SequentialLogReader<>(
-            new STParser()), 
+        STConfig.createLogReader(parallelRead, null), 
         new STGridStateFactory(
             new Coord2d(dim.minX, dim.minY), 
             new Coord2d(dim.maxX, dim.maxY),
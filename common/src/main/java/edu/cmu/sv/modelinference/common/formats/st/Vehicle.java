@@ -20,7 +20,7 @@ import java.util.Objects;
 /**
  * @author Kasper Luckow
  */
-public class Vehicle implements Copyable<Vehicle> {
+public final class Vehicle implements Copyable<Vehicle> {
 
   private final String id;
   
@@ -48,9 +48,10 @@ public class Vehicle implements Copyable<Vehicle> {
     return Objects.equals(id, other.id);    
   }
   
+  //vehicles are immutable, so they can be shared
   @Override
   public Vehicle copy() {
-    return new Vehicle(this.id);
+    return this;
   }
   
   @Override
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.formats.st.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder.Dimensions;
+
+/**
+ * Reads the grid dimensions of a log from a sidecar index file next to it 
+ * (the log file name with the {@link #INDEX_SUFFIX} suffix). If there is no up-to-date 
+ * index, the dimensions are computed with the delegate provider and the index is written,
+ * so subsequent runs on the same log do not need to scan it for the bounds. The index 
+ * records the {@link DimensionsProvider#getKind() kind} of the provider that computed it, 
+ * and is only used by a provider of the same kind.
+ * 
+ * @author Kasper Luckow
+ */
+public class DimensionsIndex implements DimensionsProvider {
+  private static final Logger logger = LoggerFactory.getLogger(DimensionsIndex.class);
+  
+  public static final String INDEX_SUFFIX = ".dim";
+  
+  private final DimensionsProvider delegate;
+  
+  public DimensionsIndex(DimensionsProvider delegate) {
+    this.delegate = delegate;
+  }
+  
+  public static File getIndexFile(File logFile) {
+    return new File(logFile.getPath() + INDEX_SUFFIX);
+  }
+  
+  @Override
+  public Dimensions getDimensions(File logFile) throws IOException {
+    File indexFile = getIndexFile(logFile);
+    String kind = delegate.getKind();
+    if(indexFile.isFile() && indexFile.lastModified() >= logFile.lastModified()) {
+      List<String> lines = Files.readAllLines(indexFile.toPath(), StandardCharsets.US_ASCII);
+      if(lines.size() < 2)
+        logger.warn("Ignoring malformed dimensions index " + indexFile.getPath());
+      else if(!lines.get(0).trim().equals(kind))
+        logger.info("Ignoring dimensions index " + indexFile.getPath() + " computed by " + lines.get(0).trim() 
+            + " instead of " + kind);
+      else {
+        Dimensions dim = parse(lines.get(1));
+        if(dim != null)
+          return dim;
+        logger.warn("Ignoring malformed dimensions index " + indexFile.getPath());
+      }
+    }
+    Dimensions dim = delegate.getDimensions(logFile);
+    try {
+      write(indexFile, kind, dim);
+    } catch (IOException e) {
+      logger.warn("Could not write dimensions index " + indexFile.getPath() + ": " + e.getMessage());
+    }
+    return dim;
+  }
+  
+  private static Dimensions parse(String line) {
+    String[] vals = line.trim().split("\\s+");
+    if(vals.length != 4)
+      return null;
+    try {
+      return new Dimensions(Double.parseDouble(vals[0]), Double.parseDouble(vals[1]), 
+          Double.parseDouble(vals[2]), Double.parseDouble(vals[3]));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+  
+  private static void write(File indexFile, String kind, Dimensions dim) throws IOException {
+    String line = dim.minX + " " + dim.minY + " " + dim.maxX + " " + dim.maxY;
+    Files.write(indexFile.toPath(), Arrays.asList(kind, line), StandardCharsets.US_ASCII);
+  }
+}
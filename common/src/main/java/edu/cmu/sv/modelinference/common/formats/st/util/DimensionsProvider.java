@@ -0,0 +1,49 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.formats.st.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder.Dimensions;
+
+/**
+ * Provides the bounding box of the grid for a log. Providers that do not
+ * scan the whole log may return bounds that do not contain all positions;
+ * grids assign such positions to the nearest boundary cells.
+ * 
+ * @author Kasper Luckow
+ */
+public interface DimensionsProvider {
+  public Dimensions getDimensions(File logFile) throws IOException;
+  
+  /**
+   * Identifies how the dimensions are computed. Providers that compute different 
+   * dimensions for the same log must have different kinds.
+   */
+  public default String getKind() {
+    return getClass().getName();
+  }
+  
+  public static DimensionsProvider FIXED(final Dimensions dim) {
+    return new DimensionsProvider() {
+      @Override
+      public Dimensions getDimensions(File logFile) {
+        return dim;
+      }
+    };
+  }
+}
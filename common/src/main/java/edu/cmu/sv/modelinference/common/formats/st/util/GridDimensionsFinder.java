@@ -17,7 +17,6 @@ package edu.cmu.sv.modelinference.common.formats.st.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 
 import edu.cmu.sv.modelinference.common.formats.st.STEntry;
 import edu.cmu.sv.modelinference.common.formats.st.STParser;
@@ -29,46 +28,79 @@ import edu.cmu.sv.modelinference.common.parser.SequentialLogReader;
 /**
  * @author Kasper Luckow
  */
-public class GridDimensionsFinder implements LogProcessor<STEntry> {
+public class GridDimensionsFinder implements LogProcessor<STEntry>, DimensionsProvider {
   
   public static class Dimensions {
     public double maxX = Double.MIN_VALUE;
     public double maxY = Double.MIN_VALUE;
     public double minX = Double.MAX_VALUE;
     public double minY = Double.MAX_VALUE;
+    
+    public Dimensions() { }
+    
+    public Dimensions(double minX, double minY, double maxX, double maxY) {
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+    }
+    
+    public void extend(double x, double y) {
+      if(x > maxX)
+        maxX = x;
+      if(x < minX)
+        minX = x;
+      if(y > maxY)
+        maxY = y;
+      if(y < minY)
+        minY = y;
+    }
+    
+    @Override
+    public String toString() {
+      return "[" + minX + "," + minY + "]-[" + maxX + "," + maxY + "]";
+    }
   }
   
   private final LogReader<STEntry> stReader;
   private Dimensions dim;
   
-  public GridDimensionsFinder() throws IOException {
+  public GridDimensionsFinder() {
     stReader = new SequentialLogReader<>(new STParser());
     stReader.addLogProcessor(this);
   }
   
-  public GridDimensionsFinder(LogEntryFilter<STEntry> filter) throws IOException {
+  public GridDimensionsFinder(LogEntryFilter<STEntry> filter) {
     stReader = new SequentialLogReader<>(new STParser(), filter);
     stReader.addLogProcessor(this);
   }
   
+  /**
+   * @param stReader reader of the log. The finder adds itself as a log processor to it.
+   */
+  public GridDimensionsFinder(LogReader<STEntry> stReader) {
+    this.stReader = stReader;
+    stReader.addLogProcessor(this);
+  }
+  
   public Dimensions start(File logFile) throws IOException {
     this.dim = new Dimensions();
     stReader.parseLog(logFile);
     return this.dim;
   }
   
+  @Override
+  public Dimensions getDimensions(File logFile) throws IOException {
+    return start(logFile);
+  }
+  
+  @Override
+  public String getKind() {
+    return "full";
+  }
+  
   @Override
   public void process(STEntry entry) {
-    double x = entry.getPosition().getX(); 
-    if(x > dim.maxX)
-      dim.maxX = x;
-    if(x < dim.minX)
-      dim.minX = x;
-    
-    double y = entry.getPosition().getY(); 
-    if(y > dim.maxY)
-      dim.maxY = y;
-    if(y < dim.minY)
-      dim.minY = y;
+    dim.extend(entry.getPosition().getX(), entry.getPosition().getY());
   }
 }
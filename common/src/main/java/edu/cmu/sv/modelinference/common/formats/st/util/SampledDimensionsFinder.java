@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.formats.st.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import edu.cmu.sv.modelinference.common.formats.st.FastSTParser;
+import edu.cmu.sv.modelinference.common.formats.st.STEntry;
+import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder.Dimensions;
+import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
+import edu.cmu.sv.modelinference.common.generators.LogParser;
+import edu.cmu.sv.modelinference.common.generators.ParserException;
+
+/**
+ * Estimates the grid dimensions from a number of evenly spaced windows of the log
+ * instead of reading all of it. Small logs are read completely.
+ * 
+ * @author Kasper Luckow
+ */
+public class SampledDimensionsFinder implements DimensionsProvider {
+  
+  public static final int DEF_SAMPLES = 64;
+  public static final int DEF_SAMPLE_SIZE = 256 * 1024;
+  
+  private final LogParser<STEntry> parser = new FastSTParser();
+  private final LogEntryFilter<STEntry> filter;
+  private final int samples;
+  private final int sampleSize;
+  
+  public SampledDimensionsFinder() {
+    this(LogEntryFilter.<STEntry>EVERYTHING(), DEF_SAMPLES, DEF_SAMPLE_SIZE);
+  }
+  
+  public SampledDimensionsFinder(LogEntryFilter<STEntry> filter, int samples, int sampleSize) {
+    if(samples < 1 || sampleSize < 1)
+      throw new IllegalArgumentException("Number of samples and sample size must be positive");
+    this.filter = filter;
+    this.samples = samples;
+    this.sampleSize = sampleSize;
+  }
+  
+  @Override
+  public String getKind() {
+    return "sampled:" + samples + ":" + sampleSize;
+  }
+  
+  @Override
+  public Dimensions getDimensions(File logFile) throws IOException {
+    Dimensions dim = new Dimensions();
+    try(FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if(size <= (long)samples * sampleSize) {
+        sample(channel, 0, size, dim);
+      } else {
+        long stride = (size - sampleSize) / Math.max(samples - 1, 1);
+        for(int i = 0; i < samples; i++)
+          sample(channel, i * stride, sampleSize, dim);
+      }
+    }
+    return dim;
+  }
+  
+  private void sample(FileChannel channel, long offset, long length, Dimensions dim) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate((int)length);
+    while(buf.hasRemaining()) {
+      if(channel.read(buf, offset + buf.position()) < 0)
+        break;
+    }
+    int end = buf.position();
+    boolean reachedEof = offset + end >= channel.size();
+    
+    //skip the partial first line unless we start at the beginning of the log
+    int lineStart = 0;
+    if(offset > 0) {
+      while(lineStart < end && buf.get(lineStart) != '\n')
+        lineStart++;
+      lineStart++;
+    }
+    for(int i = lineStart; i < end; i++) {
+      if(buf.get(i) == '\n') {
+        processLine(buf, lineStart, i, dim);
+        lineStart = i + 1;
+      }
+    }
+    //the remainder is only a complete line at the end of the log
+    if(reachedEof && lineStart < end)
+      processLine(buf, lineStart, end, dim);
+  }
+  
+  private void processLine(ByteBuffer buf, int from, int to, Dimensions dim) {
+    if(to > from && buf.get(to - 1) == '\r')
+      to--;
+    try {
+      STEntry entry = parser.parse(buf, from, to);
+      if(filter.submitForProcessing(entry))
+        dim.extend(entry.getPosition().getX(), entry.getPosition().getY());
+    } catch (ParserException e) {
+      //skip invalid entries as when reading the complete log
+    }
+  }
+}
@@ -15,35 +15,98 @@
  */
 package edu.cmu.sv.modelinference.common.formats.uas;
 
+import java.nio.ByteBuffer;
+
 import edu.cmu.sv.modelinference.common.generators.LogParser;
 import edu.cmu.sv.modelinference.common.generators.ParserException;
+import edu.cmu.sv.modelinference.common.parser.LineTokenizer;
 
 /**
+ * Only the columns in the projection are decoded; the remaining columns
+ * are skipped without being materialized. Subclasses that need more UAS fields
+ * can extend the projection and override {@link #createEntry(LineTokenizer)}.
+ * This parser is thread-safe.
+ * 
  * @author Kasper Luckow
  *
  */
 public class UASParser implements LogParser<UASEntry> {
+  
+  public static final int FIELDS = 175;
+  
+  public static final int TIME = 0;
+  public static final int LAT = 8;
+  public static final int LON = 9;
+  public static final int HEIGHT = 10;
+  public static final int SPEED = 14;
+  public static final int DIRECTION = 15;
+  public static final int ALT = 27;
+  public static final int ROLL = 38;
+  public static final int PITCH = 39;
+  public static final int YAW = 40;
+  
+  private static final int[] ENTRY_COLUMNS = {
+      TIME, LAT, LON, HEIGHT, SPEED, DIRECTION, ALT, ROLL, PITCH, YAW
+  };
+  
+  private final ThreadLocal<LineTokenizer> tokenizers;
+  
+  public UASParser() {
+    this(new int[0]);
+  }
+  
+  /**
+   * @param additionalColumns columns to decode besides the ones used for {@link UASEntry}
+   */
+  protected UASParser(int... additionalColumns) {
+    final int[] projection = new int[ENTRY_COLUMNS.length + additionalColumns.length];
+    System.arraycopy(ENTRY_COLUMNS, 0, projection, 0, ENTRY_COLUMNS.length);
+    System.arraycopy(additionalColumns, 0, projection, ENTRY_COLUMNS.length, additionalColumns.length);
+    this.tokenizers = new ThreadLocal<LineTokenizer>() {
+      @Override
+      protected LineTokenizer initialValue() {
+        return LineTokenizer.forColumns(projection);
+      }
+    };
+  }
 
   @Override
   public UASEntry parse(String rawEntry) throws ParserException {
-    String[] entry = rawEntry.split("\\s+");
-    if(entry.length != 175) //Not a valid entry (e.g. newline)
+    LineTokenizer tokenizer = tokenizers.get();
+    tokenizer.tokenize(rawEntry);
+    return parse(tokenizer);
+  }
+  
+  @Override
+  public UASEntry parse(ByteBuffer buf, int from, int to) throws ParserException {
+    LineTokenizer tokenizer = tokenizers.get();
+    if(tokenizer.tokenize(buf, from, to) < 0)
+      return LogParser.super.parse(buf, from, to);
+    return parse(tokenizer);
+  }
+  
+  private UASEntry parse(LineTokenizer tokenizer) throws ParserException {
+    if(tokenizer.getTokenCount() != FIELDS) //Not a valid entry (e.g. newline)
       throw new ParserException("Invalid entry length");
     try {      
-      double time = Float.valueOf(entry[0]);
-      double lat = Float.valueOf(entry[8]);
-      double lon = Float.valueOf(entry[9]);
-      double alt = Float.valueOf(entry[27]);
-      double height = Float.valueOf(entry[10]);
-      double speed = Float.valueOf(entry[14]);
-      double direction = Float.valueOf(entry[15]);
-      double roll = Float.valueOf(entry[38]);
-      double pitch = Float.valueOf(entry[39]);
-      double yaw = Float.valueOf(entry[40]);
-      
-      return new UASEntry(time, lat, lon, alt, height, speed, direction, roll, pitch, yaw);
+      return createEntry(tokenizer);
     } catch (NumberFormatException e) { // Not a valid entry
       throw new ParserException(e);
     }
   }
+  
+  protected UASEntry createEntry(LineTokenizer tokenizer) {
+    double time = tokenizer.getFloat(TIME);
+    double lat = tokenizer.getFloat(LAT);
+    double lon = tokenizer.getFloat(LON);
+    double alt = tokenizer.getFloat(ALT);
+    double height = tokenizer.getFloat(HEIGHT);
+    double speed = tokenizer.getFloat(SPEED);
+    double direction = tokenizer.getFloat(DIRECTION);
+    double roll = tokenizer.getFloat(ROLL);
+    double pitch = tokenizer.getFloat(PITCH);
+    double yaw = tokenizer.getFloat(YAW);
+    
+    return new UASEntry(time, lat, lon, alt, height, speed, direction, roll, pitch, yaw);
+  }
 }
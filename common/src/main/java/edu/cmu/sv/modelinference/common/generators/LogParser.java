@@ -15,9 +15,24 @@
  */
 package edu.cmu.sv.modelinference.common.generators;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
 /**
  * @author Kasper Luckow
  */
 public interface LogParser<T extends LogEntry> {
   public T parse(String rawEntry) throws ParserException;
+  
+  /**
+   * Parses the raw entry stored in buf between from (inclusive) and to (exclusive).
+   * The default decodes the bytes with the platform charset and delegates to
+   * {@link #parse(String)}; parsers that can work directly on the bytes should override it.
+   */
+  public default T parse(ByteBuffer buf, int from, int to) throws ParserException {
+    byte[] raw = new byte[to - from];
+    for(int i = 0; i < raw.length; i++)
+      raw[i] = buf.get(from + i);
+    return parse(new String(raw, Charset.defaultCharset()));
+  }
 }
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A frozen compressed sparse row view of the transitions of a model. Row i 
+ * holds the outgoing transitions of the state with id i (see {@link State#getStateId()}) 
+ * in the order of {@link State#getOutgoingTransitions()}, or ordered by destination 
+ * id if the rows are sorted: the entries between getRowStart(i) (inclusive) and 
+ * getRowEnd(i) (exclusive) give the destination ids, the weights and the normalized 
+ * weights (probabilities) of the transitions.
+ * 
+ * @author Kasper Luckow
+ */
+public class CSRModel<T extends State> {
+
+  private final State[] states;
+  private final int initStateId;
+  private final int[] rowOffsets;
+  private final int[] destinations;
+  private final int[] weights;
+  private final double[] probabilities;
+  
+  /**
+   * @throws IllegalStateException if a transition is not weighted, or leads to 
+   * a state that is not in the model
+   */
+  public CSRModel(Model<T> model) {
+    this(model, false);
+  }
+  
+  /**
+   * @param sortRows order the transitions of each row by destination id
+   * @throws IllegalStateException if a transition is not weighted, or leads to 
+   * a state that is not in the model
+   */
+  public CSRModel(Model<T> model, boolean sortRows) {
+    int stateCount = model.getStateSpaceSize();
+    this.states = new State[stateCount];
+    this.rowOffsets = new int[stateCount + 1];
+    int transCount = 0;
+    for(int id = 0; id < stateCount; id++) {
+      states[id] = model.getStateById(id);
+      transCount += states[id].getOutgoingTransitions().size();
+      rowOffsets[id + 1] = transCount;
+    }
+    this.initStateId = (model.getInitState() != null) ? model.getInitState().getStateId() : -1;
+    this.destinations = new int[transCount];
+    this.weights = new int[transCount];
+    this.probabilities = new double[transCount];
+    
+    for(int id = 0; id < stateCount; id++) {
+      State state = states[id];
+      List<Transition> out = state.getOutgoingTransitions();
+      double total = state.getOutgoingWeight();
+      for(int i = 0, k = rowOffsets[id]; i < out.size(); i++, k++) {
+        Transition t = out.get(i);
+        if(!(t instanceof WeightedTransition))
+          throw new IllegalStateException("Expected transition of type: " + WeightedTransition.class.getName());
+        State dest = t.getDest();
+        int destId = dest.getStateId();
+        if(destId < 0 || destId >= stateCount || states[destId] != dest)
+          throw new IllegalStateException("Destination of transition is not in the model: " + dest);
+        destinations[k] = destId;
+        weights[k] = ((WeightedTransition)t).getWeight();
+        probabilities[k] = weights[k] / total;
+      }
+    }
+    if(sortRows)
+      sortRows();
+  }
+  
+  private void sortRows() {
+    //destination id in the high bits, position in the row in the low bits
+    long[] keys = new long[0];
+    int[] rowWeights = new int[0];
+    double[] rowProbs = new double[0];
+    for(int id = 0; id < states.length; id++) {
+      int start = rowOffsets[id];
+      int degree = rowOffsets[id + 1] - start;
+      if(degree < 2)
+        continue;
+      if(keys.length < degree) {
+        keys = new long[degree];
+        rowWeights = new int[degree];
+        rowProbs = new double[degree];
+      }
+      for(int i = 0; i < degree; i++)
+        keys[i] = ((long)destinations[start + i] << 32) | i;
+      Arrays.sort(keys, 0, degree);
+      System.arraycopy(weights, start, rowWeights, 0, degree);
+      System.arraycopy(probabilities, start, rowProbs, 0, degree);
+      for(int i = 0; i < degree; i++) {
+        int from = (int)keys[i];
+        destinations[start + i] = (int)(keys[i] >>> 32);
+        weights[start + i] = rowWeights[from];
+        probabilities[start + i] = rowProbs[from];
+      }
+    }
+  }
+  
+  public int getStateCount() {
+    return states.length;
+  }
+  
+  public int getTransitionCount() {
+    return destinations.length;
+  }
+  
+  /**
+   * @return the id of the initial state, or -1 if the model is empty
+   */
+  public int getInitStateId() {
+    return initStateId;
+  }
+  
+  @SuppressWarnings("unchecked")
+  public T getState(int stateId) {
+    return (T)states[stateId];
+  }
+  
+  public int getRowStart(int stateId) {
+    return rowOffsets[stateId];
+  }
+  
+  public int getRowEnd(int stateId) {
+    return rowOffsets[stateId + 1];
+  }
+  
+  public int getOutDegree(int stateId) {
+    return rowOffsets[stateId + 1] - rowOffsets[stateId];
+  }
+  
+  public int getDestination(int transition) {
+    return destinations[transition];
+  }
+  
+  public int getWeight(int transition) {
+    return weights[transition];
+  }
+  
+  public double getProbability(int transition) {
+    return probabilities[transition];
+  }
+  
+  /*
+   * The arrays below are shared with this view and must not be modified
+   */
+  
+  /**
+   * @return the row offsets, i.e., an array of length getStateCount() + 1
+   */
+  public int[] getRowOffsets() {
+    return rowOffsets;
+  }
+  
+  public int[] getDestinations() {
+    return destinations;
+  }
+  
+  public int[] getWeights() {
+    return weights;
+  }
+  
+  public double[] getProbabilities() {
+    return probabilities;
+  }
+}
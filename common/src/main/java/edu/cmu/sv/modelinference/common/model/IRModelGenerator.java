@@ -56,12 +56,7 @@ public final class IRModelGenerator<T extends LogEntry, S extends State> impleme
   public void process(T entry) {
     if(isNewState(entry) && currState != null) {
       S genState = stateGenerator.finalizeState(currState);
-      S tempState = this.model.getState(genState); 
-      if(tempState == null) {
-        this.model.addState(genState);
-        currState = genState;
-      } else
-        currState = tempState;
+      currState = this.model.intern(genState);
       
       if(prevState != null && currState != null)
         generateTransition(prevState, currState);
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+/**
+ * A closed range of int values.
+ * 
+ * @author Kasper Luckow
+ */
+public final class IntRange {
+  private final int min, max;
+  
+  public IntRange(int min, int max) {
+    if(min > max)
+      throw new IllegalArgumentException("Empty range: [" + min + ", " + max + "]");
+    this.min = min;
+    this.max = max;
+  }
+  
+  public int getMin() {
+    return min;
+  }
+  
+  public int getMax() {
+    return max;
+  }
+  
+  public boolean isSingleton() {
+    return min == max;
+  }
+  
+  public boolean contains(int val) {
+    return min <= val && val <= max;
+  }
+  
+  @Override
+  public int hashCode() {
+    return 31 * min + max;
+  }
+  
+  @Override
+  public boolean equals(Object obj) {
+    if(!(obj instanceof IntRange))
+      return false;
+    IntRange other = (IntRange)obj;
+    return min == other.min && max == other.max;
+  }
+  
+  @Override
+  public String toString() {
+    return "[" + min + ", " + max + "]";
+  }
+}
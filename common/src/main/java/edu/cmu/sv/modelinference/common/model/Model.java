@@ -31,18 +31,111 @@ import com.google.common.collect.TreeMultiset;
  */
 public class Model<T extends State> implements ModelElement {
 
-  private Set<T> states = new HashSet<>();
+  //maps each state to its canonical instance
+  private Map<T, T> states = new HashMap<>();
+  //states by id
+  private List<T> stateList = new ArrayList<>();
   private T initState;
   private Set<String> modelVariables = new HashSet<>();
+  //bounds of the values assigned to each variable
+  private Map<String, Bounds> varBounds = new HashMap<>();
+  //the schema shared by all states, if any, and the bounds by slot
+  private VariableSchema schema;
+  private Bounds[] slotBounds;
+  
+  private static class Bounds {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    //false if a value is not an int, in which case the bounds are computed on demand
+    boolean valid = true;
+    
+    void add(int val) {
+      min = Math.min(min, val);
+      max = Math.max(max, val);
+    }
+    
+    void add(Object val) {
+      if(!valid)
+        return;
+      int intVal;
+      if(val instanceof Integer)
+        intVal = (Integer)val;
+      else {
+        try {
+          intVal = Integer.valueOf(val.toString());
+        } catch (NumberFormatException | NullPointerException e) {
+          valid = false;
+          return;
+        }
+      }
+      add(intVal);
+    }
+  }
 
   public void addState(T state) {
-    if(states.contains(state))
+    if(states.containsKey(state))
       return;
     if(initState == null)
       initState = state;
-    for(Assignment<?> v : state.getAssignments())
+    if(states.isEmpty())
+      initSchema(state.getSchema());
+    else if(schema != null && !schema.equals(state.getSchema())) {
+      schema = null;
+      slotBounds = null;
+    }
+    if(schema != null) {
+      for(int slot = 0; slot < slotBounds.length; slot++)
+        slotBounds[slot].add(state.getIntValue(slot));
+    } else
+      addVariables(state);
+    state.setStateId(stateList.size());
+    this.stateList.add(state);
+    this.states.put(state, state);
+  }
+  
+  private void initSchema(VariableSchema schema) {
+    this.schema = schema;
+    if(schema == null)
+      return;
+    slotBounds = new Bounds[schema.size()];
+    for(int slot = 0; slot < slotBounds.length; slot++) {
+      String name = schema.getName(slot);
+      modelVariables.add(name);
+      slotBounds[slot] = new Bounds();
+      varBounds.put(name, slotBounds[slot]);
+    }
+  }
+  
+  private void addVariables(T state) {
+    for(Assignment<?> v : state.getAssignments()) {
       modelVariables.add(v.getName());
-    this.states.add(state);
+      Bounds bounds = varBounds.get(v.getName());
+      if(bounds == null) {
+        bounds = new Bounds();
+        varBounds.put(v.getName(), bounds);
+      }
+      bounds.add(v.getValue());
+    }
+  }
+
+  /**
+   * Returns the canonical instance of the state if an equal state is already
+   * in the model. Otherwise, the state is added and returned
+   */
+  public T intern(T state) {
+    T canonical = this.states.get(state);
+    if(canonical != null)
+      return canonical;
+    addState(state);
+    return state;
+  }
+
+  /**
+   * @return the variable schema shared by all states of the model, or null if 
+   * there is none
+   */
+  public VariableSchema getSchema() {
+    return this.schema;
   }
 
   public Set<String> getModelVariables() {
@@ -50,63 +143,93 @@ public class Model<T extends State> implements ModelElement {
   }
 
   public Set<T> getStates() {
-    return this.states;
+    return this.states.keySet();
   }
 
   public boolean containsState(T state) {
-    return this.states.contains(state);
+    return this.states.containsKey(state);
   }
 
-  //TODO: This is a bad one performance-wise....
   public T getState(T state) {
-    for(T s : this.states) {
-      if(s.equals(state))
-        return s;
-    }
-    return null;
+    return this.states.get(state);
+  }
+
+  /**
+   * @return the state with the given id, see {@link State#getStateId()}
+   */
+  public T getStateById(int stateId) {
+    return this.stateList.get(stateId);
   }
 
   public T getInitState() {
     return this.initState;
   }
 
-  //TODO: super ugly that value of variables need to be treated as strings because they are objects!! Fix
-  //TODO: super ugly dealing with variables as Variable and Strings.. fix
+  /**
+   * @return the range of the values assigned to the variable in the states of 
+   * the model, or null if no state assigns the variable
+   * @throws NumberFormatException if a value is not an int
+   */
+  public IntRange getAssignedRange(String modelVar) {
+    Bounds bounds = getBounds(modelVar);
+    return (bounds == null) ? null : new IntRange(bounds.min, bounds.max);
+  }
+
+  /**
+   * @return the greatest value assigned to the variable, or Integer.MIN_VALUE 
+   * if no state assigns the variable
+   * @throws NumberFormatException if a value is not an int
+   */
   public int getMaxAssignedVal(String modelVar) {
-    int max = Integer.MIN_VALUE;
-    //TODO: super expensive
-    for(T s : this.getStates()) {
-      Assignment<?> var = s.getAssignment(modelVar);
-      if(var != null) {
-        int val = Integer.valueOf(var.getValue().toString());
-        if(val > max)
-          max = val;
-      }
-    }
-    return max;
+    Bounds bounds = getBounds(modelVar);
+    return (bounds == null) ? Integer.MIN_VALUE : bounds.max;
   }
 
-  //TODO: super ugly that value of variables need to be treated as strings because they are objects!! Fix
-  //TODO: super ugly dealing with variables as Variable and Strings.. fix
+  /**
+   * @return the least value assigned to the variable, or Integer.MAX_VALUE 
+   * if no state assigns the variable
+   * @throws NumberFormatException if a value is not an int
+   */
   public int getMinAssignedVal(String modelVar) {
-    int min = Integer.MAX_VALUE;
-    //TODO: super expensive
+    Bounds bounds = getBounds(modelVar);
+    return (bounds == null) ? Integer.MAX_VALUE : bounds.min;
+  }
+  
+  private Bounds getBounds(String modelVar) {
+    Bounds bounds = varBounds.get(modelVar);
+    if(bounds == null || bounds.valid)
+      return bounds;
+    //TODO: super ugly that value of variables need to be treated as strings because they are objects!! Fix
+    Bounds parsed = new Bounds();
     for(T s : this.getStates()) {
       Assignment<?> var = s.getAssignment(modelVar);
       if(var != null) {
         int val = Integer.valueOf(var.getValue().toString());
-        if(val < min)
-          min = val;
+        parsed.min = Math.min(parsed.min, val);
+        parsed.max = Math.max(parsed.max, val);
       }
-
     }
-    return min;
+    return parsed;
   }
 
   @Override
   public void accept(ModelVisitor visitor) {
-    visitor.visit(this);
-    this.initState.accept(visitor);
+    ModelWalker.walk(this, visitor);
+  }
+
+  /**
+   * @return a compressed sparse row view of the current transitions of the model
+   */
+  public CSRModel<T> toCSR() {
+    return new CSRModel<>(this);
+  }
+  
+  /**
+   * @param sortRows order the transitions of each state by destination id
+   * @return a compressed sparse row view of the current transitions of the model
+   */
+  public CSRModel<T> toCSR(boolean sortRows) {
+    return new CSRModel<>(this, sortRows);
   }
 
   public int getStateSpaceSize() {
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Depth-first traversal of the states reachable from an initial state with an 
+ * explicit stack. The visitor sees the same sequence of states and transitions 
+ * as with the recursive visit: each state is visited once, when it is first 
+ * reached, followed by each of its outgoing transitions and (depth-first) the
+ * destinations of these. The visited states are kept by the walker, so 
+ * several walks can run over the same model at the same time.
+ * 
+ * @author Kasper Luckow
+ */
+public final class ModelWalker {
+  
+  private static final int INIT_DEPTH = 16;
+  
+  private final Model<?> model;
+  //states of the model by id, and other states by identity
+  private final BitSet visitedIds = new BitSet();
+  private Set<State> visitedOthers = null;
+  
+  private State[] stack = new State[INIT_DEPTH];
+  private int[] nextTransition = new int[INIT_DEPTH];
+  private int depth = 0;
+  
+  private ModelWalker(Model<?> model) {
+    this.model = model;
+  }
+  
+  /**
+   * Visits the model, followed by the states reachable from its initial state
+   */
+  public static void walk(Model<?> model, ModelVisitor visitor) {
+    visitor.visit(model);
+    if(model.getInitState() != null)
+      new ModelWalker(model).walkFrom(model.getInitState(), visitor);
+  }
+  
+  /**
+   * Visits the states reachable from the given state
+   */
+  public static void walk(State init, ModelVisitor visitor) {
+    new ModelWalker(null).walkFrom(init, visitor);
+  }
+  
+  private void walkFrom(State init, ModelVisitor visitor) {
+    enter(init, visitor);
+    while(depth > 0) {
+      State state = stack[depth - 1];
+      List<Transition> out = state.getOutgoingTransitions();
+      int next = nextTransition[depth - 1];
+      if(next < out.size()) {
+        nextTransition[depth - 1] = next + 1;
+        Transition trans = out.get(next);
+        visitor.visit(trans);
+        State dest = trans.getDest();
+        if(!isVisited(dest))
+          enter(dest, visitor);
+      } else {
+        stack[--depth] = null;
+      }
+    }
+  }
+  
+  private void enter(State state, ModelVisitor visitor) {
+    setVisited(state);
+    visitor.visit(state);
+    if(depth == stack.length) {
+      stack = Arrays.copyOf(stack, 2 * depth);
+      nextTransition = Arrays.copyOf(nextTransition, 2 * depth);
+    }
+    stack[depth] = state;
+    nextTransition[depth] = 0;
+    depth++;
+  }
+  
+  private boolean isInModel(State state) {
+    int id = state.getStateId();
+    return model != null && id >= 0 && id < model.getStateSpaceSize() && model.getStateById(id) == state;
+  }
+  
+  private boolean isVisited(State state) {
+    if(isInModel(state))
+      return visitedIds.get(state.getStateId());
+    return visitedOthers != null && visitedOthers.contains(state);
+  }
+  
+  private void setVisited(State state) {
+    if(isInModel(state))
+      visitedIds.set(state.getStateId());
+    else {
+      if(visitedOthers == null)
+        visitedOthers = Collections.newSetFromMap(new IdentityHashMap<>());
+      visitedOthers.add(state);
+    }
+  }
+}
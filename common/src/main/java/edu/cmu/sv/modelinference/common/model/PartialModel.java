@@ -0,0 +1,219 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
+import edu.cmu.sv.modelinference.common.generators.LogProcessor;
+
+/**
+ * The states and transition counts of a consecutive part (shard) of a log. 
+ * Partial models of adjacent shards can be merged into the model that the 
+ * {@link IRModelGenerator} would generate from the whole log, provided each 
+ * shard starts a new time step, i.e., its first entry is later than all entries 
+ * of the preceding shards. Unlike the IRModelGenerator, the partial model 
+ * includes the last time step of the shard, since it is continued in the next shard.
+ * 
+ * @author Kasper Luckow
+ */
+public class PartialModel<T extends LogEntry, S extends State> implements LogProcessor<T> {
+
+  private final StateFactory<T, S> stateGenerator;
+  
+  //states in the order they were first seen, and the number of steps in which they occur
+  private final Map<S, Integer> stateIds = new HashMap<>();
+  private final List<S> states = new ArrayList<>();
+  private final List<Integer> occurrences = new ArrayList<>();
+  
+  //transition counts in the order the transitions were first taken
+  private final Map<Long, Integer> transitions = new LinkedHashMap<>();
+  
+  private int firstStateId = -1, penultimateStateId = -1, lastStateId = -1;
+  private double firstTime = Double.NaN;
+  private double currentTime = -1.0;
+  private S currState = null;
+  
+  public PartialModel(StateFactory<T, S> stateGenerator) {
+    this.stateGenerator = stateGenerator;
+  }
+  
+  @Override
+  public void process(T entry) {
+    if(Double.isNaN(firstTime))
+      firstTime = entry.getLogTime();
+    if(entry.getLogTime() > this.currentTime) {
+      this.currentTime = entry.getLogTime();
+      finishStep();
+    }
+    if(currState == null)
+      currState = stateGenerator.generateState();
+    stateGenerator.addEntryToState(currState, entry);
+  }
+  
+  /**
+   * Finalizes the time step currently being processed. Must be called after the 
+   * last entry of the shard has been processed
+   */
+  public void finish() {
+    finishStep();
+  }
+  
+  private void finishStep() {
+    if(currState == null)
+      return;
+    int stateId = addStep(stateGenerator.finalizeState(currState));
+    if(lastStateId >= 0)
+      addTransition(transitions, lastStateId, stateId, 1);
+    else
+      firstStateId = stateId;
+    penultimateStateId = lastStateId;
+    lastStateId = stateId;
+    currState = null;
+  }
+  
+  private int addStep(S state) {
+    Integer id = stateIds.get(state);
+    if(id == null) {
+      id = states.size();
+      stateIds.put(state, id);
+      states.add(state);
+      occurrences.add(1);
+    } else
+      occurrences.set(id, occurrences.get(id) + 1);
+    return id;
+  }
+  
+  public boolean isEmpty() {
+    return lastStateId < 0;
+  }
+  
+  /**
+   * @return the time of the first entry, or NaN if the shard has no entries
+   */
+  public double getFirstTime() {
+    return firstTime;
+  }
+  
+  /**
+   * @return the greatest time of the entries, or -1 if the shard has no entries
+   */
+  public double getMaxTime() {
+    return currentTime;
+  }
+  
+  /**
+   * Merges the partial models of consecutive shards into the model a single 
+   * IRModelGenerator would have generated from all shards. The shards must be 
+   * finished, and each must start a new time step, see {@link #startsTimeStepAfter(List)}
+   */
+  public static <T extends LogEntry, S extends State> Model<S> merge(List<PartialModel<T, S>> partials) {
+    Map<S, Integer> stateIds = new HashMap<>();
+    List<S> states = new ArrayList<>();
+    List<Integer> occurrences = new ArrayList<>();
+    Map<Long, Integer> transitions = new LinkedHashMap<>();
+    int penultimate = -1, last = -1;
+    
+    for(PartialModel<T, S> partial : partials) {
+      if(partial.isEmpty())
+        continue;
+      int[] globalIds = new int[partial.states.size()];
+      for(int i = 0; i < globalIds.length; i++) {
+        S state = partial.states.get(i);
+        Integer id = stateIds.get(state);
+        if(id == null) {
+          id = states.size();
+          stateIds.put(state, id);
+          states.add(state);
+          occurrences.add(0);
+        }
+        occurrences.set(id, occurrences.get(id) + partial.occurrences.get(i));
+        globalIds[i] = id;
+      }
+      //stitch the last step of the preceding shard to the first step of this one
+      if(last >= 0)
+        addTransition(transitions, last, globalIds[partial.firstStateId], 1);
+      for(Map.Entry<Long, Integer> trans : partial.transitions.entrySet()) {
+        addTransition(transitions, 
+            globalIds[source(trans.getKey())], 
+            globalIds[dest(trans.getKey())], 
+            trans.getValue());
+      }
+      penultimate = (partial.penultimateStateId >= 0) ? globalIds[partial.penultimateStateId] : last;
+      last = globalIds[partial.lastStateId];
+    }
+    
+    //the IRModelGenerator never finalizes the last time step of the log
+    if(last >= 0) {
+      if(penultimate >= 0)
+        addTransition(transitions, penultimate, last, -1);
+      occurrences.set(last, occurrences.get(last) - 1);
+    }
+    
+    Model<S> model = new Model<>();
+    for(int i = 0; i < states.size(); i++) {
+      if(occurrences.get(i) > 0)
+        model.addState(states.get(i));
+    }
+    for(Map.Entry<Long, Integer> trans : transitions.entrySet()) {
+      WeightedTransition wt = new WeightedTransition(
+          states.get(source(trans.getKey())), 
+          states.get(dest(trans.getKey())));
+      wt.setWeight(trans.getValue());
+    }
+    return model;
+  }
+  
+  /**
+   * @return true if the first entry of each shard is later than all entries of
+   * the preceding shards, i.e., if the shards can be merged
+   */
+  public static boolean startsTimeStepAfter(List<? extends PartialModel<?, ?>> partials) {
+    boolean first = true;
+    double maxTime = -1.0;
+    for(PartialModel<?, ?> partial : partials) {
+      if(partial.isEmpty())
+        continue;
+      if(!first && !(partial.getFirstTime() > maxTime))
+        return false;
+      first = false;
+      maxTime = Math.max(maxTime, partial.getMaxTime());
+    }
+    return true;
+  }
+  
+  private static void addTransition(Map<Long, Integer> transitions, int src, int dest, int count) {
+    Long key = ((long)src << 32) | dest;
+    Integer prev = transitions.get(key);
+    int weight = (prev == null) ? count : prev + count;
+    if(weight > 0)
+      transitions.put(key, weight);
+    else
+      transitions.remove(key);
+  }
+  
+  private static int source(long key) {
+    return (int)(key >>> 32);
+  }
+  
+  private static int dest(long key) {
+    return (int)key;
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
+import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
+import edu.cmu.sv.modelinference.common.generators.LogParser;
+import edu.cmu.sv.modelinference.common.parser.LogShard;
+import edu.cmu.sv.modelinference.common.parser.SequentialLogReader;
+
+/**
+ * Generates the same model as the {@link IRModelGenerator}, but builds a 
+ * {@link PartialModel} for each shard of the log in parallel and merges them. 
+ * If the shards turn out not to start new time steps (e.g. because the log is not 
+ * ordered by time), the partial model is instead built sequentially over all shards.
+ * The log parser must be thread-safe; each shard gets its own state factory.
+ * 
+ * @author Kasper Luckow
+ */
+public class ShardedModelGenerator<T extends LogEntry, S extends State> {
+  private static final Logger logger = LoggerFactory.getLogger(ShardedModelGenerator.class.getName());
+  
+  private final LogParser<T> logParser;
+  private final LogEntryFilter<T> filter;
+  private final Supplier<? extends StateFactory<T, S>> stateFactories;
+  private final ForkJoinPool pool;
+  
+  public ShardedModelGenerator(LogParser<T> logParser, LogEntryFilter<T> filter, 
+      Supplier<? extends StateFactory<T, S>> stateFactories) {
+    this(logParser, filter, stateFactories, ForkJoinPool.commonPool());
+  }
+  
+  public ShardedModelGenerator(LogParser<T> logParser, LogEntryFilter<T> filter, 
+      Supplier<? extends StateFactory<T, S>> stateFactories, ForkJoinPool pool) {
+    this.logParser = logParser;
+    this.filter = filter;
+    this.stateFactories = stateFactories;
+    this.pool = pool;
+  }
+  
+  /**
+   * Splits the log into the given number of shards at time step boundaries
+   */
+  public Model<S> generateModel(File logFile, int shards) throws IOException {
+    return generateModel(LogShard.split(logFile, shards, logParser));
+  }
+  
+  /**
+   * @param shards consecutive parts of the log in time order, e.g., one log file
+   * per day, see {@link LogShard#forFiles(List)}
+   */
+  public Model<S> generateModel(List<LogShard> shards) throws IOException {
+    List<ForkJoinTask<PartialModel<T, S>>> tasks = new ArrayList<>();
+    for(LogShard shard : shards)
+      tasks.add(pool.submit(() -> buildPartialModel(shard)));
+    List<PartialModel<T, S>> partials = new ArrayList<>();
+    for(ForkJoinTask<PartialModel<T, S>> task : tasks)
+      partials.add(getResult(task));
+    
+    if(!PartialModel.startsTimeStepAfter(partials)) {
+      logger.warn("Log shards overlap in time. Generating the model sequentially");
+      PartialModel<T, S> partial = new PartialModel<>(stateFactories.get());
+      for(LogShard shard : shards)
+        parse(shard, partial);
+      partial.finish();
+      partials.clear();
+      partials.add(partial);
+    }
+    return PartialModel.merge(partials);
+  }
+  
+  private PartialModel<T, S> buildPartialModel(LogShard shard) throws IOException {
+    PartialModel<T, S> partial = new PartialModel<>(stateFactories.get());
+    parse(shard, partial);
+    partial.finish();
+    return partial;
+  }
+  
+  private static <R> R getResult(ForkJoinTask<R> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if(e.getCause() instanceof IOException)
+        throw (IOException)e.getCause();
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+  
+  private void parse(LogShard shard, PartialModel<T, S> partial) throws IOException {
+    SequentialLogReader<T> reader = new SequentialLogReader<>(logParser, filter);
+    reader.addLogProcessor(partial);
+    shard.parse(reader);
+  }
+}
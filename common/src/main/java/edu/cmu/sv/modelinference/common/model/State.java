@@ -18,13 +18,13 @@ package edu.cmu.sv.modelinference.common.model;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import com.google.common.base.Objects;
-
 /**
  * @author Kasper Luckow
  */
@@ -34,33 +34,62 @@ public class State implements ModelElement {
   protected List<Transition> out = new ArrayList<>();
   
   protected List<Assignment<? extends Number>> assignments = new ArrayList<>();
+  
+  //outgoing transitions by the identity of their destinations. Created on demand
+  private Map<State, Transition> outByDest = null;
+  private int stateId = -1;
+  //sum of the weights of the outgoing weighted transitions
+  private long outgoingWeight = 0;
 
-  private boolean isVisited = false;
-
-  //Instead of relying on a "stateful" visitor
-  //where we need to reset the visited flag, iterate
-  //over the states instead because this is ugly
-  public void setVisited(boolean flag) {
-    this.isVisited = flag;
-  }
+  /**
+   * @deprecated the visited states are kept by the {@link ModelWalker}, so
+   * they no longer need to be reset before a traversal. This does nothing
+   */
+  @Deprecated
+  public void setVisited(boolean flag) { }
   
+  /**
+   * Visits the states reachable from this state, see {@link ModelWalker}
+   */
   @Override
   public void accept(ModelVisitor visitor) {
-    if(!isVisited) {
-      visitor.visit(this);
-      isVisited = true;
-      for(Transition o : this.out) {
-        o.accept(visitor);
-      }
-    }
+    ModelWalker.walk(this, visitor);
   }
   
   public List<Assignment<? extends Number>> getAssignments() {
     return this.assignments;
   }
   
+  /**
+   * @return the schema that maps the variables of this state to slots, or null if the 
+   * assignments are not stored by slot. States with a schema only have int variables,
+   * and {@link #getAssignments()} lists the assignments in slot order
+   */
+  public VariableSchema getSchema() {
+    return null;
+  }
+  
+  /**
+   * @return the assignment in the given slot, i.e., the slot-th element of {@link #getAssignments()}
+   */
+  public Assignment<? extends Number> getAssignment(int slot) {
+    return getAssignments().get(slot);
+  }
+  
+  /**
+   * @return the value assigned in the given slot as an int
+   */
+  public int getIntValue(int slot) {
+    return getAssignment(slot).getValue().intValue();
+  }
+  
   public Assignment<?> getAssignment(String name) {
-    for(Assignment<?> var : this.assignments) {
+    VariableSchema schema = getSchema();
+    if(schema != null) {
+      int slot = schema.getSlot(name);
+      return (slot < 0) ? null : getAssignment(slot);
+    }
+    for(Assignment<?> var : getAssignments()) {
       if(var.getName().equals(name))
         return var;
     }
@@ -69,7 +98,7 @@ public class State implements ModelElement {
   
   public <T extends Number> Collection<T> getAssignmentsOfType(Class<T> clazz) {
     Collection<T> vars = new LinkedList<>();
-    for(Assignment<?> var : this.assignments) {
+    for(Assignment<?> var : getAssignments()) {
       if(clazz.isInstance(var)) {
         vars.add(clazz.cast(var));
       }
@@ -101,6 +130,15 @@ public class State implements ModelElement {
   }
   
   public Transition getTransitionForDestination(State dest) {
+    if(outByDest != null) {
+      Transition out = outByDest.get(dest);
+      if(out != null)
+        return out;
+    }
+    //a model only contains canonical instances of its states, so for destinations 
+    //in a model, the index is complete
+    if(dest.stateId >= 0)
+      return null;
     for(Transition out : this.getOutgoingTransitions()) {
       if(out.getDest().equals(dest))
         return out;
@@ -108,6 +146,34 @@ public class State implements ModelElement {
     return null;
   }
   
+  /**
+   * @return the sum of the weights of the outgoing weighted transitions
+   */
+  public long getOutgoingWeight() {
+    return this.outgoingWeight;
+  }
+  
+  void addOutgoingWeight(long weight) {
+    this.outgoingWeight += weight;
+  }
+  
+  /**
+   * @return the normalized weights of the outgoing transitions in the order 
+   * of {@link #getOutgoingTransitions()}
+   * @throws IllegalStateException if an outgoing transition is not weighted
+   */
+  public double[] getOutgoingDistribution() {
+    double[] dist = new double[this.out.size()];
+    double total = this.outgoingWeight;
+    for(int i = 0; i < dist.length; i++) {
+      Transition t = this.out.get(i);
+      if(!(t instanceof WeightedTransition))
+        throw new IllegalStateException("Expected transition of type: " + WeightedTransition.class.getName());
+      dist[i] = ((WeightedTransition)t).getWeight() / total;
+    }
+    return dist;
+  }
+  
   public List<State> getSuccessorStates() {
     List<State> succ = new ArrayList<>();
     for(Transition out : this.out)
@@ -123,16 +189,37 @@ public class State implements ModelElement {
     this.assignments.addAll(assigns);
   }
   
+  /**
+   * @return a state with the same assignments as this one, but without any transitions
+   */
+  public State detachedCopy() {
+    State copy = new State();
+    copy.addAllAssignments(getAssignments());
+    return copy;
+  }
+  
   public void addIncomingTransition(Transition in) {
     this.in.add(in);
   }
   
   public void addOutgoingTransition(Transition out) {
     this.out.add(out);
+    if(outByDest == null)
+      outByDest = new IdentityHashMap<>(4);
+    outByDest.putIfAbsent(out.getDest(), out);
   }
 
+  /**
+   * @return the id of the state in the model it was added to, or -1 if the 
+   * state is not in a model. Ids are dense, i.e., between 0 and the number of
+   * states of the model
+   */
   public int getStateId() {
-    throw new UnsupportedOperationException();
+    return this.stateId;
+  }
+  
+  void setStateId(int stateId) {
+    this.stateId = stateId;
   }
   
   @Override
@@ -140,23 +227,28 @@ public class State implements ModelElement {
     if(other instanceof State) {
       final State otherState = (State) other;
       Set<Object> set1 = new HashSet<Object>();
-      set1.addAll(this.assignments);
+      set1.addAll(this.getAssignments());
       Set<Object> set2 = new HashSet<Object>();
-      set2.addAll(otherState.assignments);
+      set2.addAll(otherState.getAssignments());
       return set1.equals(set2);
     } else
       return false;
   }
   
+  //must agree with equals, i.e., be independent of the order of the assignments. Same
+  //value as the hash of the set of assignments, since a state assigns each variable once
   @Override
   public int hashCode(){
-      return Objects.hashCode(this.assignments);
+    int h = 0;
+    for(Assignment<?> var : getAssignments())
+      h += var.hashCode();
+    return h;
   }
   
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    Iterator<Assignment<? extends Number>> varit = this.assignments.iterator();
+    Iterator<Assignment<? extends Number>> varit = this.getAssignments().iterator();
     while(varit.hasNext()) {
       sb.append(varit.next());
       if(varit.hasNext())
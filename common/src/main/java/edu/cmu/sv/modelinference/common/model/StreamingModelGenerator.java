@@ -0,0 +1,209 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
+import edu.cmu.sv.modelinference.common.generators.LogProcessor;
+
+/**
+ * Infers a model incrementally from entries as they arrive, e.g., from a live 
+ * feed, with the same states and transition weights as the {@link IRModelGenerator}.
+ * Entries are processed by a single thread, and a read-only snapshot of the model 
+ * is published every publishInterval time steps (or explicitly with {@link #publish()}). 
+ * Snapshots can be obtained from any thread with {@link #getSnapshot()} without 
+ * blocking the ingestion. Only the distinct states and the transition weights are
+ * kept in memory.
+ * 
+ * @author Kasper Luckow
+ */
+public class StreamingModelGenerator<T extends LogEntry, S extends State> implements LogProcessor<T> {
+
+  public static final int DEF_PUBLISH_INTERVAL = 1000;
+  
+  /**
+   * A consistent view of the model at the time it was published. The arrays are
+   * shared with the generator, which only appends to them or copies them before
+   * they are modified
+   */
+  public static class ModelSnapshot {
+    private final State[] states;
+    private final int stateCount;
+    private final int[] transSrc, transDest, weights;
+    private final int transCount;
+    private final long steps;
+    
+    private ModelSnapshot(State[] states, int stateCount, int[] transSrc, int[] transDest, int[] weights, int transCount, long steps) {
+      this.states = states;
+      this.stateCount = stateCount;
+      this.transSrc = transSrc;
+      this.transDest = transDest;
+      this.weights = weights;
+      this.transCount = transCount;
+      this.steps = steps;
+    }
+    
+    public int getStateSpaceSize() {
+      return stateCount;
+    }
+    
+    public int getTransitionCount() {
+      return transCount;
+    }
+    
+    /**
+     * @return the number of time steps that were finalized when the snapshot was published
+     */
+    public long getSteps() {
+      return steps;
+    }
+    
+    /**
+     * Builds a model from the snapshot. Each call creates a new model with 
+     * its own (detached) states, so the model can be changed, e.g., by visitors, 
+     * without affecting other snapshots
+     */
+    public Model<State> toModel() {
+      Model<State> model = new Model<>();
+      State[] copies = new State[stateCount];
+      for(int i = 0; i < stateCount; i++) {
+        copies[i] = states[i].detachedCopy();
+        model.addState(copies[i]);
+      }
+      for(int t = 0; t < transCount; t++) {
+        WeightedTransition trans = new WeightedTransition(copies[transSrc[t]], copies[transDest[t]]);
+        trans.setWeight(weights[t]);
+      }
+      return model;
+    }
+  }
+  
+  private static final int INIT_CAPACITY = 64;
+  
+  private final StateFactory<T, S> stateGenerator;
+  private final int publishInterval;
+  
+  private final Map<S, Integer> stateIds = new HashMap<>();
+  private State[] states = new State[INIT_CAPACITY];
+  private int stateCount = 0;
+  
+  //transitions in the order they were first taken
+  private final Map<Long, Integer> transIds = new HashMap<>();
+  private int[] transSrc = new int[INIT_CAPACITY];
+  private int[] transDest = new int[INIT_CAPACITY];
+  private int[] weights = new int[INIT_CAPACITY];
+  private boolean weightsPublished = false;
+  private int transCount = 0;
+  
+  private S currState = null;
+  private int prevStateId = -1;
+  private double currentTime = -1.0;
+  private long steps = 0;
+  private int unpublishedSteps = 0;
+  
+  private volatile ModelSnapshot snapshot;
+  
+  public StreamingModelGenerator(StateFactory<T, S> stateGenerator) {
+    this(stateGenerator, DEF_PUBLISH_INTERVAL);
+  }
+  
+  /**
+   * @param publishInterval the number of time steps after which a new snapshot is published
+   */
+  public StreamingModelGenerator(StateFactory<T, S> stateGenerator, int publishInterval) {
+    if(publishInterval <= 0)
+      throw new IllegalArgumentException("Publish interval must be positive");
+    this.stateGenerator = stateGenerator;
+    this.publishInterval = publishInterval;
+    publish();
+  }
+  
+  @Override
+  public void process(T entry) {
+    if(entry.getLogTime() > this.currentTime) {
+      this.currentTime = entry.getLogTime();
+      if(currState != null) {
+        int stateId = getOrAddState(stateGenerator.finalizeState(currState));
+        if(prevStateId >= 0)
+          addTransition(prevStateId, stateId);
+        prevStateId = stateId;
+        currState = null;
+        steps++;
+        if(++unpublishedSteps >= publishInterval)
+          publish();
+      }
+    }
+    if(currState == null)
+      currState = stateGenerator.generateState();
+    stateGenerator.addEntryToState(currState, entry);
+  }
+  
+  /**
+   * Publishes a snapshot of the states and transitions seen so far. Like 
+   * {@link #process(LogEntry)}, this must be called by the ingesting thread.
+   * The time step currently being processed is not part of the snapshot
+   */
+  public void publish() {
+    weightsPublished = true;
+    unpublishedSteps = 0;
+    this.snapshot = new ModelSnapshot(states, stateCount, transSrc, transDest, weights, transCount, steps);
+  }
+  
+  /**
+   * @return the most recently published snapshot. Can be called from any thread
+   */
+  public ModelSnapshot getSnapshot() {
+    return this.snapshot;
+  }
+  
+  private int getOrAddState(S state) {
+    Integer id = stateIds.get(state);
+    if(id != null)
+      return id;
+    if(stateCount == states.length)
+      states = Arrays.copyOf(states, 2 * stateCount);
+    states[stateCount] = state;
+    stateIds.put(state, stateCount);
+    return stateCount++;
+  }
+  
+  private void addTransition(int src, int dest) {
+    Long key = ((long)src << 32) | dest;
+    Integer id = transIds.get(key);
+    if(id != null) {
+      if(weightsPublished) { //published snapshots must not see the increment
+        weights = weights.clone();
+        weightsPublished = false;
+      }
+      weights[id]++;
+      return;
+    }
+    //appending does not change the entries visible to published snapshots
+    if(transCount == transSrc.length) {
+      transSrc = Arrays.copyOf(transSrc, 2 * transCount);
+      transDest = Arrays.copyOf(transDest, 2 * transCount);
+      weights = Arrays.copyOf(weights, 2 * transCount);
+      weightsPublished = false;
+    }
+    transSrc[transCount] = src;
+    transDest[transCount] = dest;
+    weights[transCount] = 1;
+    transIds.put(key, transCount++);
+  }
+}
@@ -39,9 +39,12 @@ public class Transition implements ModelElement {
     return this.dest;
   }
   
+  /**
+   * Visits only this transition; traversing the destination is left to 
+   * {@link ModelWalker}, which keeps track of the visited states
+   */
   @Override
   public void accept(ModelVisitor visitor) {
     visitor.visit(this);
-    this.dest.accept(visitor);
   }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the names of the variables of a model to slots, i.e., indices 0 to size()-1.
+ * States sharing a schema can store their assignments by slot, see 
+ * {@link State#getSchema()}.
+ * 
+ * @author Kasper Luckow
+ */
+public class VariableSchema {
+  
+  private final String[] names;
+  private final Map<String, Integer> slots;
+  
+  public VariableSchema(List<String> names) {
+    this.names = names.toArray(new String[names.size()]);
+    this.slots = new HashMap<>(2 * this.names.length);
+    for(int slot = 0; slot < this.names.length; slot++) {
+      if(slots.put(this.names[slot], slot) != null)
+        throw new IllegalArgumentException("Duplicate variable: " + this.names[slot]);
+    }
+  }
+  
+  public int size() {
+    return names.length;
+  }
+  
+  public String getName(int slot) {
+    return names[slot];
+  }
+  
+  /**
+   * @return the slot of the variable, or -1 if it is not in the schema
+   */
+  public int getSlot(String name) {
+    Integer slot = slots.get(name);
+    return (slot == null) ? -1 : slot;
+  }
+  
+  public List<String> getNames() {
+    return Collections.unmodifiableList(Arrays.asList(names));
+  }
+  
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(names);
+  }
+  
+  @Override
+  public boolean equals(Object obj) {
+    if(this == obj)
+      return true;
+    if(!(obj instanceof VariableSchema))
+      return false;
+    return Arrays.equals(names, ((VariableSchema)obj).names);
+  }
+}
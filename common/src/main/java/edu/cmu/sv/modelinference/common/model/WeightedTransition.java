@@ -24,9 +24,11 @@ public class WeightedTransition extends Transition {
 
   public WeightedTransition(State src, State dest) {
     super(src, dest);
+    src.addOutgoingWeight(this.weight);
   }
   
   public void setWeight(int weight) {
+    this.getSource().addOutgoingWeight((long)weight - this.weight);
     this.weight = weight;
   }
   
@@ -35,14 +37,11 @@ public class WeightedTransition extends Transition {
   }
   
   public double getNormalizedWeight() {
-    State source = this.getSource();
-    double totalWeight = 0.0;
-    for(Transition t : source.getOutgoingTransitions())
-      totalWeight += ((WeightedTransition)t).getWeight();
-    return this.weight / totalWeight;
+    return this.weight / (double)this.getSource().getOutgoingWeight();
   }
   
   public void incrementWeight(int inc) {
+    this.getSource().addOutgoingWeight(inc);
     this.weight += inc;
   }
 }
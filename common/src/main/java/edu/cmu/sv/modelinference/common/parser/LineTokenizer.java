@@ -0,0 +1,310 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.parser;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a line into whitespace separated tokens without allocating, and
+ * parses the tokens in place. Tokens are the same as with String.split("\\s+"), i.e.,
+ * leading whitespace yields an empty first token. Only the bounds of a fixed set
+ * of columns (token indices) are recorded, so wide lines can be projected to the
+ * few columns of interest. Numbers are parsed to exactly the same values as
+ * Double.valueOf, Float.valueOf and Long.valueOf; uncommon notations fall back
+ * to these methods. Instances are not thread-safe.
+ *
+ * @author Kasper Luckow
+ */
+public class LineTokenizer {
+
+  //exactly representable powers of ten
+  private static final double[] DOUBLE_POW10 = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final float[] FLOAT_POW10 = {
+      1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+  };
+  private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+  private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+  private static final int MAX_MANTISSA_DIGITS = 18;
+
+  private final int[] slotOfColumn;
+  private final int[] starts;
+  private final int[] ends;
+  private final AsciiSequence asciiView = new AsciiSequence();
+  private CharSequence line;
+  private int tokenCount;
+
+  /**
+   * @param maxTokens the number of leading tokens for which the bounds are recorded
+   */
+  public LineTokenizer(int maxTokens) {
+    this(range(maxTokens));
+  }
+
+  private LineTokenizer(int[] columns) {
+    int maxColumn = -1;
+    for(int col : columns)
+      maxColumn = Math.max(maxColumn, col);
+    this.slotOfColumn = new int[maxColumn + 1];
+    Arrays.fill(slotOfColumn, -1);
+    for(int i = 0; i < columns.length; i++)
+      slotOfColumn[columns[i]] = i;
+    this.starts = new int[columns.length];
+    this.ends = new int[columns.length];
+  }
+
+  /**
+   * Creates a tokenizer that only records the bounds of the given columns (token indices). 
+   * All other tokens are skipped, but still counted
+   */
+  public static LineTokenizer forColumns(int... columns) {
+    return new LineTokenizer(columns.clone());
+  }
+
+  private static int[] range(int n) {
+    int[] columns = new int[n];
+    for(int i = 0; i < n; i++)
+      columns[i] = i;
+    return columns;
+  }
+
+  /**
+   * @return the number of tokens in the line
+   */
+  public int tokenize(CharSequence line) {
+    this.line = line;
+    int len = line.length();
+    int n = 0;
+    int i = 0;
+    if(len > 0 && isWhitespace(line.charAt(0)))
+      n = record(n, 0, 0);
+    while(true) {
+      while(i < len && isWhitespace(line.charAt(i)))
+        i++;
+      if(i >= len)
+        break;
+      int start = i;
+      while(i < len && !isWhitespace(line.charAt(i)))
+        i++;
+      n = record(n, start, i);
+    }
+    this.tokenCount = n;
+    return n;
+  }
+
+  /**
+   * Tokenizes the bytes between from (inclusive) and to (exclusive) of buf.
+   * @return the number of tokens in the line, or -1 if the line is not plain
+   * ASCII in which case the caller must decode it with the proper charset
+   */
+  public int tokenize(ByteBuffer buf, int from, int to) {
+    if(!asciiView.reset(buf, from, to))
+      return -1;
+    return tokenize(asciiView);
+  }
+
+  private int record(int n, int start, int end) {
+    if(n < slotOfColumn.length && slotOfColumn[n] >= 0) {
+      starts[slotOfColumn[n]] = start;
+      ends[slotOfColumn[n]] = end;
+    }
+    return n + 1;
+  }
+
+  public int getTokenCount() {
+    return tokenCount;
+  }
+
+  public double getDouble(int column) {
+    int slot = slot(column);
+    return parseDouble(line, starts[slot], ends[slot]);
+  }
+
+  public float getFloat(int column) {
+    int slot = slot(column);
+    return parseFloat(line, starts[slot], ends[slot]);
+  }
+
+  public long getLong(int column) {
+    int slot = slot(column);
+    return parseLong(line, starts[slot], ends[slot]);
+  }
+
+  public String getString(int column) {
+    int slot = slot(column);
+    return line.subSequence(starts[slot], ends[slot]).toString();
+  }
+
+  public String getString(int column, StringPool pool) {
+    int slot = slot(column);
+    return pool.intern(line, starts[slot], ends[slot]);
+  }
+
+  private int slot(int column) {
+    if(column >= tokenCount || column >= slotOfColumn.length || slotOfColumn[column] < 0)
+      throw new IllegalArgumentException("Column " + column + " is not available");
+    return slotOfColumn[column];
+  }
+
+  /**
+   * Same as Double.valueOf for the chars between from and to
+   * @throws NumberFormatException if the chars do not form a valid double
+   */
+  public static double parseDouble(CharSequence seq, int from, int to) {
+    //fast path for plain decimals: the mantissa and the power of ten are exact doubles,
+    //so a single (correctly rounded) division yields the correctly rounded value
+    int scale = plainDecimalScale(seq, from, to);
+    if(scale >= 0 && scale < DOUBLE_POW10.length) {
+      long mantissa = plainDecimalMantissa(seq, from, to);
+      if(mantissa <= MAX_EXACT_DOUBLE_MANTISSA) {
+        double val = (double)mantissa / DOUBLE_POW10[scale];
+        return seq.charAt(from) == '-' ? -val : val;
+      }
+    }
+    return Double.parseDouble(seq.subSequence(from, to).toString());
+  }
+
+  /**
+   * Same as Float.valueOf for the chars between from and to
+   * @throws NumberFormatException if the chars do not form a valid float
+   */
+  public static float parseFloat(CharSequence seq, int from, int to) {
+    int scale = plainDecimalScale(seq, from, to);
+    if(scale >= 0 && scale < FLOAT_POW10.length) {
+      long mantissa = plainDecimalMantissa(seq, from, to);
+      if(mantissa <= MAX_EXACT_FLOAT_MANTISSA) {
+        float val = (float)mantissa / FLOAT_POW10[scale];
+        return seq.charAt(from) == '-' ? -val : val;
+      }
+    }
+    return Float.parseFloat(seq.subSequence(from, to).toString());
+  }
+
+  /**
+   * @return the number of fraction digits if the chars form a plain decimal,
+   * i.e., an optional sign, at least one digit and at most one '.', with a 
+   * mantissa that fits in a long. Otherwise -1
+   */
+  private static int plainDecimalScale(CharSequence seq, int from, int to) {
+    int i = from;
+    if(i < to && (seq.charAt(i) == '-' || seq.charAt(i) == '+'))
+      i++;
+    int digits = 0;
+    int significantDigits = 0;
+    int fractionDigits = -1;
+    for(; i < to; i++) {
+      char c = seq.charAt(i);
+      if(c >= '0' && c <= '9') {
+        digits++;
+        if(significantDigits > 0 || c != '0')
+          significantDigits++;
+        if(fractionDigits >= 0)
+          fractionDigits++;
+      } else if(c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        return -1;
+      }
+    }
+    if(digits == 0 || significantDigits > MAX_MANTISSA_DIGITS)
+      return -1;
+    return Math.max(fractionDigits, 0);
+  }
+
+  private static long plainDecimalMantissa(CharSequence seq, int from, int to) {
+    long mantissa = 0;
+    for(int i = from; i < to; i++) {
+      char c = seq.charAt(i);
+      if(c >= '0' && c <= '9')
+        mantissa = mantissa * 10 + (c - '0');
+    }
+    return mantissa;
+  }
+
+  /**
+   * Same as Long.valueOf for the chars between from and to
+   * @throws NumberFormatException if the chars do not form a valid long
+   */
+  public static long parseLong(CharSequence seq, int from, int to) {
+    int i = from;
+    boolean negative = false;
+    if(i < to && (seq.charAt(i) == '-' || seq.charAt(i) == '+'))
+      negative = seq.charAt(i++) == '-';
+    if(i < to && to - i <= MAX_MANTISSA_DIGITS) {
+      long val = 0;
+      for(; i < to; i++) {
+        char c = seq.charAt(i);
+        if(c < '0' || c > '9')
+          break;
+        val = val * 10 + (c - '0');
+      }
+      if(i == to)
+        return negative ? -val : val;
+    }
+    return Long.parseLong(seq.subSequence(from, to).toString());
+  }
+
+  //the characters matched by \s
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * Reusable char view of an ASCII encoded byte range
+   */
+  private static class AsciiSequence implements CharSequence {
+    private ByteBuffer buf;
+    private int from;
+    private int to;
+
+    boolean reset(ByteBuffer buf, int from, int to) {
+      this.buf = buf;
+      this.from = from;
+      this.to = to;
+      for(int i = from; i < to; i++) {
+        if(buf.get(i) < 0)
+          return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return to - from;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char)buf.get(from + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      char[] chars = new char[end - start];
+      for(int i = 0; i < chars.length; i++)
+        chars[i] = charAt(start + i);
+      return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length()).toString();
+    }
+  }
+}
@@ -51,7 +51,10 @@ public abstract class LogReader<T extends LogEntry> {
   public abstract void parseLog(File log) throws IOException;
   
   protected final void processRawEntry(String rawEntry) throws ParserException {
-    T entry = logParser.parse(rawEntry);
+    processEntry(logParser.parse(rawEntry));
+  }
+  
+  protected final void processEntry(T entry) {
     if(filter == null || filter.submitForProcessing(entry)) {
       for(LogProcessor<T> proc : logProcessors)
         proc.process(entry);
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
+import edu.cmu.sv.modelinference.common.generators.LogParser;
+import edu.cmu.sv.modelinference.common.generators.ParserException;
+
+/**
+ * A range of lines of a log file given by byte offsets.
+ *
+ * @author Kasper Luckow
+ */
+public class LogShard {
+
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+  
+  private final File logFile;
+  private final long from, to;
+  
+  public LogShard(File logFile) {
+    this(logFile, 0, logFile.length());
+  }
+  
+  public LogShard(File logFile, long from, long to) {
+    this.logFile = logFile;
+    this.from = from;
+    this.to = to;
+  }
+  
+  public File getLogFile() {
+    return logFile;
+  }
+  
+  public long getFrom() {
+    return from;
+  }
+  
+  public long getTo() {
+    return to;
+  }
+  
+  public void parse(SequentialLogReader<?> reader) throws IOException {
+    reader.parseLog(logFile, from, to);
+  }
+  
+  /**
+   * @return a shard for each of the logs
+   */
+  public static List<LogShard> forFiles(List<File> logFiles) {
+    List<LogShard> shards = new ArrayList<>();
+    for(File logFile : logFiles)
+      shards.add(new LogShard(logFile));
+    return shards;
+  }
+  
+  /**
+   * Splits the log into (at most) the given number of shards of roughly equal size. 
+   * Each shard but the first starts with the first entry, whose time is greater 
+   * than the time of the preceding entry, i.e., for logs ordered by time, shards 
+   * start at the beginning of a time step.
+   */
+  public static List<LogShard> split(File logFile, int shards, LogParser<? extends LogEntry> parser) throws IOException {
+    List<LogShard> result = new ArrayList<>();
+    long size = logFile.length();
+    long start = 0;
+    try(FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+      for(int i = 1; i < shards; i++) {
+        long target = (size / shards) * i;
+        if(target <= start)
+          continue;
+        long boundary = new LineScanner(channel, target, size).findTimeStepStart(parser);
+        if(boundary < size) {
+          result.add(new LogShard(logFile, start, boundary));
+          start = boundary;
+        }
+      }
+    }
+    result.add(new LogShard(logFile, start, size));
+    return result;
+  }
+  
+  @Override
+  public String toString() {
+    return logFile + "[" + from + "," + to + ")";
+  }
+  
+  /**
+   * Reads the lines following a byte offset. Lines are terminated by \n
+   */
+  private static class LineScanner {
+    private final FileChannel channel;
+    private final long size;
+    private final ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private long bufPos;
+    private long lineStart;
+    
+    LineScanner(FileChannel channel, long pos, long size) throws IOException {
+      this.channel = channel;
+      this.size = size;
+      this.bufPos = pos;
+      buf.limit(0);
+      //the line containing pos belongs to the preceding shard
+      if(pos > 0 && byteAt(pos - 1) != '\n')
+        nextLine();
+      this.lineStart = position();
+    }
+    
+    long findTimeStepStart(LogParser<? extends LogEntry> parser) throws IOException {
+      double maxTime = Double.NaN;
+      while(lineStart < size) {
+        long start = lineStart;
+        String raw = nextLine();
+        try {
+          double time = parser.parse(raw).getLogTime();
+          if(time > maxTime)
+            return start;
+          maxTime = Double.isNaN(maxTime) ? time : Math.max(maxTime, time);
+        } catch (ParserException e) {
+          //not an entry
+        }
+      }
+      return size;
+    }
+    
+    private long position() {
+      return bufPos + buf.position();
+    }
+    
+    private byte byteAt(long pos) throws IOException {
+      ByteBuffer single = ByteBuffer.allocate(1);
+      channel.read(single, pos);
+      return single.get(0);
+    }
+    
+    //returns the line starting at the current position, and moves past it
+    private String nextLine() throws IOException {
+      line.reset();
+      while(true) {
+        if(!buf.hasRemaining()) {
+          bufPos += buf.limit();
+          buf.clear();
+          if(bufPos >= size || channel.read(buf, bufPos) <= 0) {
+            buf.limit(0);
+            break;
+          }
+          buf.flip();
+        }
+        byte b = buf.get();
+        if(b == '\n')
+          break;
+        line.write(b);
+      }
+      lineStart = position();
+      byte[] bytes = line.toByteArray();
+      int len = bytes.length;
+      if(len > 0 && bytes[len - 1] == '\r')
+        len--;
+      return new String(bytes, 0, len, Charset.defaultCharset());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
+import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
+import edu.cmu.sv.modelinference.common.generators.LogParser;
+import edu.cmu.sv.modelinference.common.generators.ParserException;
+
+/**
+ * Memory maps the log file and parses newline-aligned chunks of it in parallel.
+ * Parsed entries are handed to the filter and the log processors on the calling
+ * thread in the original file order, so processors see exactly the same sequence
+ * as with the {@link SequentialLogReader}. Lines are handed to the parser as byte
+ * ranges of the mapped file, see {@link LogParser#parse(ByteBuffer, int, int)}.
+ * The log parser must be thread-safe.
+ *
+ * @author Kasper Luckow
+ */
+public class ParallelLogReader<T extends LogEntry> extends LogReader<T> {
+
+  public static final int DEF_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  private static final int SCAN_BUFFER_SIZE = 4096;
+
+  private final ForkJoinPool pool;
+  private final int chunkSize;
+  private final int maxChunksInFlight;
+
+  public ParallelLogReader(LogParser<T> logParser) {
+    this(logParser, null);
+  }
+
+  public ParallelLogReader(LogParser<T> logParser, LogEntryFilter<T> filter) {
+    this(logParser, filter, ForkJoinPool.commonPool(), DEF_CHUNK_SIZE);
+  }
+
+  public ParallelLogReader(LogParser<T> logParser, LogEntryFilter<T> filter, ForkJoinPool pool, int chunkSize) {
+    super(logParser, filter);
+    if(chunkSize <= 0)
+      throw new IllegalArgumentException("Chunk size must be positive");
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+    //bounds the number of parsed, but not yet processed, entries kept in memory
+    this.maxChunksInFlight = 2 * pool.getParallelism();
+  }
+
+  @Override
+  public void parseLog(File logFile) throws IOException {
+    try(FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      Deque<ForkJoinTask<List<T>>> inFlight = new ArrayDeque<>();
+      long pos = 0;
+      while(pos < size) {
+        long end = findChunkEnd(channel, Math.min(pos + chunkSize, size), size);
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, pos, end - pos);
+        inFlight.addLast(pool.submit(new ChunkParser(chunk)));
+        if(inFlight.size() >= maxChunksInFlight)
+          processEntries(inFlight.removeFirst().join());
+        pos = end;
+      }
+      while(!inFlight.isEmpty())
+        processEntries(inFlight.removeFirst().join());
+    }
+  }
+
+  private void processEntries(List<T> entries) {
+    for(T entry : entries)
+      super.processEntry(entry);
+  }
+
+  /**
+   * Returns the offset of the first byte after the next newline at or after pos,
+   * or size if there is no newline left
+   */
+  private long findChunkEnd(FileChannel channel, long pos, long size) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    while(pos < size) {
+      buf.clear();
+      int read = channel.read(buf, pos);
+      if(read < 0)
+        break;
+      for(int i = 0; i < read; i++) {
+        if(buf.get(i) == '\n')
+          return pos + i + 1;
+      }
+      pos += read;
+    }
+    return size;
+  }
+
+  private class ChunkParser implements Callable<List<T>> {
+    private final MappedByteBuffer chunk;
+
+    ChunkParser(MappedByteBuffer chunk) {
+      this.chunk = chunk;
+    }
+
+    @Override
+    public List<T> call() {
+      int size = chunk.limit();
+      List<T> entries = new ArrayList<>();
+      int lineStart = 0;
+      int i = 0;
+      //same line terminators as BufferedReader.readLine: \n, \r or \r\n
+      while(i < size) {
+        byte b = chunk.get(i);
+        if(b == '\n' || b == '\r') {
+          parseLine(lineStart, i, entries);
+          if(b == '\r' && i + 1 < size && chunk.get(i + 1) == '\n')
+            i++;
+          lineStart = i + 1;
+        }
+        i++;
+      }
+      if(lineStart < size)
+        parseLine(lineStart, size, entries);
+      return entries;
+    }
+
+    private void parseLine(int from, int to, List<T> entries) {
+      try {
+        entries.add(logParser.parse(chunk, from, to));
+      } catch (ParserException e) {
+        //skipped like in the SequentialLogReader
+      }
+    }
+  }
+}
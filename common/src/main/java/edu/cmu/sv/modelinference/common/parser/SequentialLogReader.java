@@ -19,6 +19,13 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.io.ByteStreams;
 
 import edu.cmu.sv.modelinference.common.generators.LogEntry;
 import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
@@ -42,13 +49,31 @@ public class SequentialLogReader<T extends LogEntry> extends LogReader<T> {
   public void parseLog(File logFile) throws IOException {
     FileReader fr = new FileReader(logFile);
     try(BufferedReader rd = new BufferedReader(fr)) {
-      String logEntry;
-      while((logEntry = rd.readLine()) != null) {
-        try {
-          super.processRawEntry(logEntry);
-        } catch (ParserException e) {
-          //this is really bad... Maybe change the convention of the parser, e.g., return null
-        }
+      parseLog(rd);
+    }
+  }
+  
+  /**
+   * Parses the lines between the byte offsets from (inclusive) and to (exclusive)
+   * of the log. The offsets should be at line starts
+   */
+  public void parseLog(File logFile, long from, long to) throws IOException {
+    try(FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+      channel.position(from);
+      InputStream in = ByteStreams.limit(Channels.newInputStream(channel), Math.max(to - from, 0));
+      try(BufferedReader rd = new BufferedReader(new InputStreamReader(in))) {
+        parseLog(rd);
+      }
+    }
+  }
+  
+  private void parseLog(BufferedReader rd) throws IOException {
+    String logEntry;
+    while((logEntry = rd.readLine()) != null) {
+      try {
+        super.processRawEntry(logEntry);
+      } catch (ParserException e) {
+        //this is really bad... Maybe change the convention of the parser, e.g., return null
       }
     }
   }
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.common.parser;
+
+/**
+ * Interns strings directly from a range of a char sequence, so
+ * a lookup of an already known value does not allocate. Meant for low
+ * cardinality fields such as call signs or statuses. Lookups are lock free;
+ * insertions are synchronized. Once the pool is full, new values are
+ * returned without being interned.
+ *
+ * @author Kasper Luckow
+ */
+public class StringPool {
+
+  public static final int DEF_MAX_SIZE = 1 << 16;
+
+  private static final int INIT_CAPACITY = 64;
+
+  private final int maxSize;
+  private volatile String[] table = new String[INIT_CAPACITY];
+  private int size = 0;
+
+  public StringPool() {
+    this(DEF_MAX_SIZE);
+  }
+
+  public StringPool(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public String intern(CharSequence seq, int from, int to) {
+    int hash = hash(seq, from, to);
+    String str = lookup(table, seq, from, to, hash);
+    if(str != null)
+      return str;
+    synchronized(this) {
+      String[] tab = table;
+      str = lookup(tab, seq, from, to, hash);
+      if(str != null)
+        return str;
+      str = seq.subSequence(from, to).toString();
+      if(size >= maxSize)
+        return str;
+      if(2 * (size + 1) > tab.length) {
+        tab = rehash(tab);
+      }
+      insert(tab, str);
+      size++;
+      table = tab;
+      return str;
+    }
+  }
+
+  public String intern(String str) {
+    return intern(str, 0, str.length());
+  }
+
+  private static String lookup(String[] tab, CharSequence seq, int from, int to, int hash) {
+    int mask = tab.length - 1;
+    for(int i = hash & mask; ; i = (i + 1) & mask) {
+      String candidate = tab[i];
+      if(candidate == null)
+        return null;
+      if(candidate.hashCode() == hash && contentEquals(candidate, seq, from, to))
+        return candidate;
+    }
+  }
+
+  private static void insert(String[] tab, String str) {
+    int mask = tab.length - 1;
+    int i = str.hashCode() & mask;
+    while(tab[i] != null)
+      i = (i + 1) & mask;
+    tab[i] = str;
+  }
+
+  private static String[] rehash(String[] tab) {
+    String[] newTab = new String[tab.length * 2];
+    for(String str : tab) {
+      if(str != null)
+        insert(newTab, str);
+    }
+    return newTab;
+  }
+
+  //same as String.hashCode
+  private static int hash(CharSequence seq, int from, int to) {
+    int h = 0;
+    for(int i = from; i < to; i++)
+      h = 31 * h + seq.charAt(i);
+    return h;
+  }
+
+  private static boolean contentEquals(String str, CharSequence seq, int from, int to) {
+    if(str.length() != to - from)
+      return false;
+    for(int i = 0; i < str.length(); i++) {
+      if(str.charAt(i) != seq.charAt(from + i))
+        return false;
+    }
+    return true;
+  }
+}
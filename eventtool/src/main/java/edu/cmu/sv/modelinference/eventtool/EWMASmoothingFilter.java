@@ -17,10 +17,25 @@ package edu.cmu.sv.modelinference.eventtool;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 /**
+ * Smooths with an exponentially weighted moving average over the window, computed 
+ * from the newest value to the oldest: avg = newest, then avg = avg + alpha * (x - avg) 
+ * for each preceding value x. Hence, with r = 1 - alpha and the preceding values 
+ * x_0 (oldest) to x_(m-1), the average is alpha * G + r^m * newest with 
+ * G = x_0 + r * x_1 + ... + r^(m-1) * x_(m-1). G is maintained incrementally: 
+ * for an unbounded window by appending to it, and for a bounded window with 
+ * two stacks, since removing the oldest value cannot be done by dividing by r 
+ * without amplifying rounding errors.
+ * 
+ * The average is not bit-identical to the one computed by the recurrence. Both 
+ * have rounding errors proportional to the largest absolute value in the window, 
+ * and differ by a few units in the last place of that value. If the values of 
+ * the window cancel, the difference can be large relative to the average itself.
+ * 
+ * Smoothing a window that contains infinite or NaN values falls back to the 
+ * direct computation for bounded windows. For unbounded windows, such values
+ * make all subsequent averages infinite or NaN. 
+ * 
  * @author Kasper Luckow
  *
  */
@@ -34,13 +49,111 @@ public class EWMASmoothingFilter extends RectangularSmoothingFilter {
   }
   
   @Override
-  protected double computeMean(List<Double> data) {
-    Iterator<Double> iter = data.iterator();
-    double avg = iter.next();
-    while(iter.hasNext()) {
-      avg = avg + alpha * (iter.next() - avg);      
+  public Smoother createSmoother() {
+    if(isBounded())
+      return new WindowedSmoother(alpha, getWindowSize());
+    return new UnboundedSmoother(alpha);
+  }
+  
+  private static class UnboundedSmoother implements Smoother {
+    private final double alpha;
+    private final double r;
+    private double g = 0;
+    private double pow = 1;
+    
+    UnboundedSmoother(double alpha) {
+      this.alpha = alpha;
+      this.r = 1 - alpha;
+    }
+
+    @Override
+    public double next(double y) {
+      double avg = alpha * g + pow * y;
+      g += pow * y;
+      pow *= r;
+      return avg;
     }
-    return avg;    
   }
+  
+  private static class WindowedSmoother implements Smoother {
+    private final double alpha;
+    private final double r;
+    //pows[k] = r^k
+    private final double[] pows;
+    //ring buffer with the preceding values. The older ones are on the front stack, the newer ones on the back stack
+    private final double[] values;
+    //for each value on the front stack, G of the values from it to the newest one on the front stack
+    private final double[] frontG;
+    private int oldest = 0;
+    private int frontSize = 0;
+    private int backSize = 0;
+    //G of the values on the back stack
+    private double backG = 0;
+    private int nonFinite = 0;
+    
+    WindowedSmoother(double alpha, int windowSize) {
+      this.alpha = alpha;
+      this.r = 1 - alpha;
+      this.pows = new double[windowSize + 1];
+      this.pows[0] = 1;
+      for(int k = 1; k <= windowSize; k++)
+        this.pows[k] = this.pows[k - 1] * r;
+      this.values = new double[windowSize];
+      this.frontG = new double[windowSize];
+    }
 
+    @Override
+    public double next(double y) {
+      int size = frontSize + backSize;
+      double avg;
+      if(nonFinite > 0 || !Double.isFinite(y))
+        avg = computeAvg(y);
+      else {
+        double g = (frontSize > 0) ? frontG[oldest] + pows[frontSize] * backG : backG;
+        avg = alpha * g + pows[size] * y;
+      }
+      if(values.length > 0) {
+        if(size == values.length)
+          removeOldest();
+        append(y);
+      }
+      return avg;
+    }
+    
+    private void append(double y) {
+      values[(oldest + frontSize + backSize) % values.length] = y;
+      backG += pows[backSize] * y;
+      backSize++;
+      if(!Double.isFinite(y))
+        nonFinite++;
+    }
+    
+    private void removeOldest() {
+      if(frontSize == 0) {
+        //move the back stack to the front
+        double g = 0;
+        for(int i = backSize - 1; i >= 0; i--) {
+          int idx = (oldest + i) % values.length;
+          g = values[idx] + r * g;
+          frontG[idx] = g;
+        }
+        frontSize = backSize;
+        backSize = 0;
+        backG = 0;
+      }
+      if(!Double.isFinite(values[oldest]))
+        nonFinite--;
+      oldest = (oldest + 1) % values.length;
+      frontSize--;
+    }
+    
+    //the average computed from the newest value to the oldest
+    private double computeAvg(double y) {
+      double avg = y;
+      for(int i = frontSize + backSize - 1; i >= 0; i--) {
+        avg = avg + alpha * (values[(oldest + i) % values.length] - avg);
+      }
+      return avg;
+    }
+  }
 }
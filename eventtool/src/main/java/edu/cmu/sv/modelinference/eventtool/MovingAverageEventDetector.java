@@ -17,15 +17,12 @@ package edu.cmu.sv.modelinference.eventtool;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Queue;
-import java.util.TreeMap;
-
 /**
+ * Predicts the thresholds for a sample from the mean and the (population) standard 
+ * deviation of a moving window over the preceding samples. The window holds the 
+ * preceding sample and the windowSize samples before it, or all preceding samples
+ * if unbounded. The statistics are maintained incrementally with Welford's method.
+ * 
  * @author Kasper Luckow
  *
  */
@@ -56,56 +53,142 @@ public class MovingAverageEventDetector implements EventDetector {
     checkArgument(xs.length == ys.length);
     checkArgument(xs.length > 0);
     
-    TreeMap<Integer, Double> upperThreshold = new TreeMap<>();
-    TreeMap<Integer, Double> lowerThreshold = new TreeMap<>();
+    //the first sample has no prediction
+    double[] upperThreshold = new double[xs.length];
+    double[] lowerThreshold = new double[xs.length];
+    upperThreshold[0] = Double.NaN;
+    lowerThreshold[0] = Double.NaN;
     
-    LinkedList<Double> movingDataSet = new LinkedList<>();
+    Predictor predictor = createPredictor();
     for(int i = 0; i < xs.length - 1; i++) {
-      if(this.windowSize > UNBOUNDED_WINDOW_SIZE && i > this.windowSize) {
-        movingDataSet.removeLast();
-      }
-      movingDataSet.addFirst(ys[i]);
-      double mean = computeMean(movingDataSet);
-      double stdDev = Math.sqrt(computeVariance(movingDataSet, mean));
+      predictor.add(ys[i]);
       
       //+1 here for forecasting
-      upperThreshold.put(((int)xs[i + 1]), mean + (stdDev * stdDevs));
-      lowerThreshold.put(((int)xs[i + 1]), mean - (stdDev * stdDevs));
+      upperThreshold[i + 1] = predictor.getUpperThreshold();
+      lowerThreshold[i + 1] = predictor.getLowerThreshold();
     }
     
-    return new PredictionModel(upperThreshold, lowerThreshold);
+    return new PredictionModel(xs, upperThreshold, lowerThreshold);
   }
   
   public double[] computeMovingAverage(double[] data) {
-    LinkedList<Double> movingDataSet = new LinkedList<>();
-    double[] movingAvg = new double[data.length];
-    for(int i = 0; i < data.length; i++) {
-      if(this.windowSize > UNBOUNDED_WINDOW_SIZE && i > this.windowSize) {
-        movingDataSet.removeLast();
-      }
-      movingDataSet.addFirst(data[i]);
-      double mean = computeMean(movingDataSet);
-      movingAvg[i] = mean;
-    }
-    return movingAvg;
+    return new UnweightedRectangularSmoothingFilter(this.windowSize).smoothen(null, data);
   }
   
-  private double computeMean(List<Double> data) {
-    double mean = 0;
-    for(double d : data) {
-      mean += d;
-    }
-    return mean / (double)data.size();
+  /**
+   * @return a predictor for a single series
+   */
+  public Predictor createPredictor() {
+    boolean bounded = this.windowSize > UNBOUNDED_WINDOW_SIZE;
+    return new Predictor(bounded ? this.windowSize + 1 : -1, this.stdDevs);
   }
   
-  private static double computeVariance(Queue<Double> data, double mean) {
-    double sqDev = 0;
-    for(double d : data) {
-      sqDev += Math.pow(d - mean, 2);
+  /**
+   * Predicts the thresholds of the next sample of a series from the samples 
+   * added so far. Adding a sample takes constant (amortized) time.
+   */
+  public static class Predictor {
+    private final double stdDevs;
+    //ring buffer with the samples of the window, null if unbounded
+    private final double[] window;
+    private int newest = -1;
+    private int size = 0;
+    private double mean = 0;
+    //sum of squared deviations from the mean
+    private double m2 = 0;
+    private int nonFinite = 0;
+    
+    private Predictor(int capacity, double stdDevs) {
+      this.window = (capacity > 0) ? new double[capacity] : null;
+      this.stdDevs = stdDevs;
     }
     
-    //It does not seem clear whether we should divide by the data size
-    //or data size - 1
-    return sqDev / (double)data.size();
-  }  
+    public void add(double y) {
+      boolean removedNonFinite = false;
+      if(window != null) {
+        newest = (newest + 1) % window.length;
+        if(size == window.length)
+          removedNonFinite = !remove(window[newest]);
+        window[newest] = y;
+      }
+      size++;
+      double delta = y - mean;
+      mean += delta / size;
+      m2 += delta * (y - mean);
+      if(!Double.isFinite(y))
+        nonFinite++;
+      if(window != null && (newest == window.length - 1 || nonFinite > 0 || removedNonFinite))
+        resync();
+    }
+    
+    /**
+     * @return false if the sample is infinite or NaN. The statistics are not updated
+     * then, since they are infinite or NaN as well, and must be recomputed
+     */
+    private boolean remove(double y) {
+      if(!Double.isFinite(y)) {
+        nonFinite--;
+        size--;
+        return false;
+      }
+      if(size == 1) {
+        mean = 0;
+        m2 = 0;
+      } else {
+        double delta = y - mean;
+        mean -= delta / (size - 1);
+        m2 -= delta * (y - mean);
+      }
+      size--;
+      return true;
+    }
+    
+    //recomputes the statistics of the window with two passes. This is done once per revolution 
+    //of the ring buffer, so the errors of adding and removing samples do not accumulate,
+    //and whenever the window contains, or just dropped, infinite or NaN values, since these 
+    //cannot be removed again
+    private void resync() {
+      double sum = 0;
+      for(int i = 0; i < size; i++) {
+        sum += window[i];
+      }
+      mean = sum / (double)size;
+      double sqDev = 0;
+      for(int i = 0; i < size; i++) {
+        double dev = window[i] - mean;
+        sqDev += dev * dev;
+      }
+      m2 = sqDev;
+    }
+    
+    public int getSampleCount() {
+      return size;
+    }
+    
+    public double getMean() {
+      return mean;
+    }
+    
+    /**
+     * @return the population variance of the window
+     */
+    public double getVariance() {
+      return Math.max(m2, 0) / (double)size;
+    }
+    
+    public double getUpperThreshold() {
+      return mean + (Math.sqrt(getVariance()) * stdDevs);
+    }
+    
+    public double getLowerThreshold() {
+      return mean - (Math.sqrt(getVariance()) * stdDevs);
+    }
+    
+    /**
+     * @return true if y is outside the thresholds predicted for the next sample
+     */
+    public boolean isViolation(double y) {
+      return y > getUpperThreshold() || y < getLowerThreshold();
+    }
+  }
 }
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.eventtool;
+
+/**
+ * A smoothing filter that can also smooth a series incrementally, one value at a time.
+ * 
+ * @author Kasper Luckow
+ *
+ */
+public interface OnlineSmoothingFilter extends SmoothingFilter {
+  
+  /**
+   * Smooths the values of a single series. The values must be given in order.
+   */
+  public interface Smoother {
+    /**
+     * @return the smoothed value at y, i.e., the same value as smoothen yields at its position
+     */
+    public double next(double y);
+  }
+  
+  public Smoother createSmoother();
+}
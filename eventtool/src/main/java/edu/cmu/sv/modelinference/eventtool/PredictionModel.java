@@ -17,65 +17,141 @@ package edu.cmu.sv.modelinference.eventtool;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
-import org.apache.commons.math3.util.Pair;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 import com.google.common.collect.Range;
 
 import edu.cmu.sv.modelinference.common.formats.DataPoint;
 import edu.cmu.sv.modelinference.common.formats.DataPointCollection;
 
 /**
+ * The thresholds predicted for the samples of a series. The times and the thresholds 
+ * are stored per sample in parallel arrays; the first sample has no prediction.
+ * Times are kept exactly, so sub-second sampling rates are supported. Lookups 
+ * by time use binary search over the (non-decreasing) times.
+ * 
  * @author Kasper Luckow
  *
  */
 
 public class PredictionModel {
-  private SortedMap<Integer, Double> upperThreshold;
-  private SortedMap<Integer, Double> lowerThreshold;
+  private final double[] times;
+  private final double[] upperThreshold;
+  private final double[] lowerThreshold;
   
-  PredictionModel(SortedMap<Integer, Double> upperThreshold, SortedMap<Integer, Double> lowerThreshold) {
-    checkArgument(upperThreshold.size() == lowerThreshold.size());
+  PredictionModel(double[] xs, double[] upperThreshold, double[] lowerThreshold) {
+    checkArgument(xs.length == upperThreshold.length);
+    checkArgument(upperThreshold.length == lowerThreshold.length);
+    for(int i = 1; i < xs.length; i++)
+      checkArgument(xs[i - 1] <= xs[i], "Samples must be in increasing order of time");
+    this.times = xs.clone();
     this.upperThreshold = upperThreshold;
     this.lowerThreshold = lowerThreshold;
   }
   
   public boolean isViolation(int xTime, double yObserved) {
     checkArgument(xTime > 0);
-    if(upperThreshold.containsKey(xTime)) {
-      double upper = upperThreshold.get(xTime);
-      double lower = lowerThreshold.get(xTime);
-      return yObserved > upper || yObserved < lower;
-    }
+    return isViolation((double)xTime, yObserved);
+  }
+  
+  /**
+   * @return true if the observed value is outside the thresholds predicted for 
+   * the (last) sample at the time. False if there is no prediction for the time
+   */
+  public boolean isViolation(double xTime, double yObserved) {
+    int sample = findSample(xTime);
+    if(sample > 0)
+      return isViolationAtSample(sample, yObserved);
     else 
       return false;
   }
   
+  /**
+   * @return true if the observed value is outside the thresholds predicted for the sample
+   */
+  public boolean isViolationAtSample(int sample, double yObserved) {
+    return yObserved > upperThreshold[sample] || yObserved < lowerThreshold[sample];
+  }
+  
+  /**
+   * @return the last sample at the time, or -1 if there is no such sample
+   */
+  private int findSample(double xTime) {
+    int lo = 0;
+    int hi = times.length - 1;
+    int found = -1;
+    while(lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if(times[mid] <= xTime) {
+        if(times[mid] == xTime)
+          found = mid;
+        lo = mid + 1;
+      } else
+        hi = mid - 1;
+    }
+    return found;
+  }
+  
+  /**
+   * Same as {@link #findThresholdViolationTimes(double[], double[])}, with the 
+   * endpoints of the ranges truncated to ints. Periods that are empty after
+   * truncating, i.e., that lie within one second, are left out
+   */
   public List<Range<Integer>> findThresholdViolations(double[] xs, double[] yObserved) {
-    int maxPredictions = Math.min(xs.length, upperThreshold.size());
     LinkedList<Range<Integer>> violations = new LinkedList<>();
+    for(Range<Double> violation : findThresholdViolationTimes(xs, yObserved)) {
+      int start = violation.lowerEndpoint().intValue();
+      int end = violation.upperEndpoint().intValue();
+      if(start < end)
+        violations.addLast(Range.closedOpen(start, end));
+    }
+    return violations;
+  }
+  
+  /**
+   * Finds the periods in which the observed values are outside the predicted thresholds. 
+   * A period starts at the first violating observation and ends at the first 
+   * observation after it that does not violate the thresholds. Observations at 
+   * times without a prediction are not violations. Like {@link #isViolation(double, double)}, 
+   * an observation is matched to the last sample at its time. The observations are 
+   * matched to the predictions in a single pass.
+   * 
+   * @param xs the times of the observations in increasing order
+   */
+  public List<Range<Double>> findThresholdViolationTimes(double[] xs, double[] yObserved) {
+    checkArgument(xs.length == yObserved.length);
+    LinkedList<Range<Double>> violations = new LinkedList<>();
     boolean ongoingViolation = false;
-    int violationStart = 0;
-    for(int i = 1; i < maxPredictions; i++) {
+    double violationStart = 0;
+    int sample = 0;
+    for(int i = 0; i < xs.length; i++) {
       double x = xs[i];
-      if(!ongoingViolation && isViolation((int)x, yObserved[i])) {
-        violationStart = (int)xs[i];
+      //usually, the observations are the samples of the model
+      if(sample < i && i < times.length && times[i] <= x)
+        sample = i;
+      //advance to the last sample at or before x
+      while(sample + 1 < times.length && times[sample + 1] <= x)
+        sample++;
+      boolean violation = sample > 0 && times[sample] == x && isViolationAtSample(sample, yObserved[i]);
+      if(!ongoingViolation && violation) {
+        violationStart = x;
         ongoingViolation = true;
-      } else if(ongoingViolation && !isViolation((int)x, yObserved[i])) {
-        violations.addLast(Range.closedOpen(violationStart, (int)x));
+      } else if(ongoingViolation && !violation) {
+        violations.addLast(Range.closedOpen(violationStart, x));
         ongoingViolation = false;
       } 
     }
     return violations;
   }
   
+  /**
+   * @return the number of samples with a prediction
+   */
+  public int getPredictionCount() {
+    return Math.max(times.length - 1, 0);
+  }
+  
   public DataPointCollection getUpperThreshold() {
     return computeThreshold(upperThreshold);
   }
@@ -84,10 +160,10 @@ public class PredictionModel {
     return computeThreshold(lowerThreshold);
   }
   
-  private static DataPointCollection computeThreshold(SortedMap<Integer, Double> threshold) {
+  private DataPointCollection computeThreshold(double[] threshold) {
     DataPointCollection dp = new DataPointCollection();
-    for(int key : threshold.keySet()) {
-      dp.add(new DataPoint(key, threshold.get(key)));
+    for(int i = 1; i < threshold.length; i++) {
+      dp.add(new DataPoint(times[i], threshold[i]));
     }
     return dp;
   }
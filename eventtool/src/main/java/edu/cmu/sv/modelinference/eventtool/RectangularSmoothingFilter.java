@@ -15,14 +15,16 @@
  */
 package edu.cmu.sv.modelinference.eventtool;
 
-import java.util.LinkedList;
-import java.util.List;
-
 /**
+ * Smooths a series with a moving window. The window at a value holds the value 
+ * itself and the windowSize preceding values, or all preceding values 
+ * if the window is unbounded. Subclasses smooth incrementally in constant 
+ * time per value.
+ * 
  * @author Kasper Luckow
  *
  */
-public abstract class RectangularSmoothingFilter implements SmoothingFilter {
+public abstract class RectangularSmoothingFilter implements OnlineSmoothingFilter {
   
   private final int windowSize;
   private static final int UNBOUNDED_WINDOW_SIZE = -1;
@@ -37,18 +39,23 @@ public abstract class RectangularSmoothingFilter implements SmoothingFilter {
   
   @Override
   public double[] smoothen(double[] xs, double[] ys) {
-    LinkedList<Double> movingDataSet = new LinkedList<>();
+    Smoother smoother = createSmoother();
     double[] movingAvg = new double[ys.length];
     for(int i = 0; i < ys.length; i++) {
-      if(this.windowSize > UNBOUNDED_WINDOW_SIZE && i > this.windowSize) {
-        movingDataSet.removeLast();
-      }
-      movingDataSet.addFirst(ys[i]);
-      double mean = computeMean(movingDataSet);
-      movingAvg[i] = mean;
+      movingAvg[i] = smoother.next(ys[i]);
     }
     return movingAvg;
   }
   
-  protected abstract double computeMean(List<Double> data);
+  protected boolean isBounded() {
+    return this.windowSize > UNBOUNDED_WINDOW_SIZE;
+  }
+  
+  /**
+   * @return the number of values preceding the newest one in a full window. Only
+   * meaningful if the window is bounded
+   */
+  protected int getWindowSize() {
+    return this.windowSize;
+  }
 }
@@ -15,6 +15,8 @@
  */
 package edu.cmu.sv.modelinference.eventtool;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * @author Kasper Luckow
  *
@@ -54,4 +56,37 @@ public class RoCExtractor implements FeatureExtractor {
     
     return ySlope;
   }
+  
+  /**
+   * @return an extractor that computes the same feature one value at a time
+   */
+  public SlopeTracker createSlopeTracker() {
+    return new SlopeTracker(numPointsSeparator);
+  }
+  
+  /**
+   * Computes the feature of a single series incrementally, keeping only the
+   * last numPointsSeparator values. The values must be given in order.
+   */
+  public static class SlopeTracker {
+    private final int numPointsSeparator;
+    private final double[] recent;
+    private long count = 0;
+    private double first;
+    
+    private SlopeTracker(int numPointsSeparator) {
+      checkArgument(numPointsSeparator >= 0);
+      this.numPointsSeparator = numPointsSeparator;
+      this.recent = new double[numPointsSeparator + 1];
+    }
+    
+    public double next(double y) {
+      if(count == 0)
+        first = y;
+      recent[(int)(count % recent.length)] = y;
+      double lower = (count >= numPointsSeparator) ? recent[(int)((count - numPointsSeparator) % recent.length)] : first;
+      count++;
+      return (y - lower) / (numPointsSeparator + 1);
+    }
+  }
 }
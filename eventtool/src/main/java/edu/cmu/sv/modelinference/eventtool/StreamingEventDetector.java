@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.eventtool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import com.google.common.collect.Range;
+
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
+import edu.cmu.sv.modelinference.common.generators.LogProcessor;
+import edu.cmu.sv.modelinference.eventtool.classification.AvgFeature;
+import edu.cmu.sv.modelinference.eventtool.classification.Event;
+import edu.cmu.sv.modelinference.eventtool.classification.EventFeature;
+import edu.cmu.sv.modelinference.eventtool.classification.EventUtils;
+
+/**
+ * Push based version of the event detection of the {@link EventVisualizer}. Log entries 
+ * are processed as they are read: for each producer, the value of the entry is 
+ * smoothed, the rate of change feature is extracted and smoothed, and it is checked 
+ * against the thresholds predicted by the moving average detector. All stages are 
+ * incremental, so only a constant amount of state is kept per producer.
+ * 
+ * As with {@link EventUtils#computeEventSequence(double, double, java.util.List)}, the 
+ * series of a producer is segmented at the start of each threshold violation. An 
+ * event, with the average feature of its samples, is emitted for a segment as soon as 
+ * the next violation starts, i.e., as soon as it is known. The last segment of each 
+ * producer is emitted by {@link #flush()}, in the order the producers were first seen. 
+ * Segments without samples are not emitted. Unlike {@link Event}s, the periods of 
+ * the emitted events keep the exact log times. The entries of each producer must be 
+ * processed in increasing order of time.
+ * 
+ * @author Kasper Luckow
+ */
+public class StreamingEventDetector<T extends LogEntry> implements LogProcessor<T> {
+  
+  public interface EventListener {
+    public void eventDetected(String producer, Range<Double> period, EventFeature feature);
+  }
+  
+  public static class Builder<T extends LogEntry> {
+    private final ToDoubleFunction<T> valueExtractor;
+    private final MovingAverageEventDetector evtDetector;
+    private final RoCExtractor featureExtractor;
+    private final EventListener listener;
+    private OnlineSmoothingFilter smoothingFilter = null;
+    private OnlineSmoothingFilter featureSmoothingFilter = null;
+    
+    public Builder(ToDoubleFunction<T> valueExtractor, MovingAverageEventDetector evtDetector, RoCExtractor featureExtractor, EventListener listener) {
+      this.valueExtractor = valueExtractor;
+      this.evtDetector = evtDetector;
+      this.featureExtractor = featureExtractor;
+      this.listener = listener;
+    }
+    
+    public Builder<T> addFeatureSmoothingFilter(OnlineSmoothingFilter filter) {
+      this.featureSmoothingFilter = filter;
+      return this;
+    }
+    
+    public Builder<T> addRawDataSmoothingFilter(OnlineSmoothingFilter filter) {
+      this.smoothingFilter = filter;
+      return this;
+    }
+    
+    public StreamingEventDetector<T> build() {
+      return new StreamingEventDetector<>(valueExtractor, smoothingFilter, featureExtractor, 
+          featureSmoothingFilter, evtDetector, listener);
+    }
+  }
+  
+  private final ToDoubleFunction<T> valueExtractor;
+  private final OnlineSmoothingFilter smoothingFilter;
+  private final RoCExtractor featureExtractor;
+  private final OnlineSmoothingFilter featureSmoothingFilter;
+  private final MovingAverageEventDetector evtDetector;
+  private final EventListener listener;
+  
+  private final Map<String, ProducerState> producers = new LinkedHashMap<>();
+  
+  private StreamingEventDetector(ToDoubleFunction<T> valueExtractor, OnlineSmoothingFilter smoothingFilter, 
+      RoCExtractor featureExtractor, OnlineSmoothingFilter featureSmoothingFilter, 
+      MovingAverageEventDetector evtDetector, EventListener listener) {
+    this.valueExtractor = valueExtractor;
+    this.smoothingFilter = smoothingFilter;
+    this.featureExtractor = featureExtractor;
+    this.featureSmoothingFilter = featureSmoothingFilter;
+    this.evtDetector = evtDetector;
+    this.listener = listener;
+  }
+
+  @Override
+  public void process(T entry) {
+    String producer = entry.getLogProducerId();
+    ProducerState state = producers.get(producer);
+    if(state == null) {
+      state = new ProducerState();
+      producers.put(producer, state);
+    }
+    state.process(producer, entry.getLogTime(), valueExtractor.applyAsDouble(entry));
+  }
+  
+  /**
+   * Emits the last segment of each producer and forgets all producers
+   */
+  public void flush() {
+    for(Map.Entry<String, ProducerState> producer : producers.entrySet()) {
+      producer.getValue().closeSegment(producer.getKey(), producer.getValue().lastTime);
+    }
+    producers.clear();
+  }
+  
+  private class ProducerState {
+    private final OnlineSmoothingFilter.Smoother smoother = 
+        (smoothingFilter != null) ? smoothingFilter.createSmoother() : null;
+    private final RoCExtractor.SlopeTracker slopeTracker = featureExtractor.createSlopeTracker();
+    private final OnlineSmoothingFilter.Smoother featureSmoother = 
+        (featureSmoothingFilter != null) ? featureSmoothingFilter.createSmoother() : null;
+    private final MovingAverageEventDetector.Predictor predictor = evtDetector.createPredictor();
+    
+    private boolean started = false;
+    private boolean ongoingViolation = false;
+    private double segmentStart;
+    private double lastTime;
+    //the feature of the last sample is added to its segment when the next sample arrives,
+    //since segments are closed-open
+    private double lastFeature;
+    private double segmentSum = 0;
+    private int segmentSize = 0;
+    
+    void process(String producer, double time, double value) {
+      double y = (smoother != null) ? smoother.next(value) : value;
+      double feature = slopeTracker.next(y);
+      if(featureSmoother != null)
+        feature = featureSmoother.next(feature);
+      
+      if(!started) {
+        started = true;
+        segmentStart = time;
+      } else {
+        segmentSum += lastFeature;
+        segmentSize++;
+        boolean violation = predictor.isViolation(feature);
+        if(!ongoingViolation && violation) {
+          closeSegment(producer, time);
+          segmentStart = time;
+          ongoingViolation = true;
+        } else if(ongoingViolation && !violation) {
+          ongoingViolation = false;
+        }
+      }
+      predictor.add(feature);
+      lastFeature = feature;
+      lastTime = time;
+    }
+    
+    void closeSegment(String producer, double end) {
+      if(segmentSize > 0) {
+        listener.eventDetected(producer, Range.closedOpen(segmentStart, end), 
+            new AvgFeature(segmentSum / (double)segmentSize));
+      }
+      segmentSum = 0;
+      segmentSize = 0;
+    }
+  }
+}
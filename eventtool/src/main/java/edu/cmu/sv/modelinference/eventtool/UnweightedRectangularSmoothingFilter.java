@@ -15,10 +15,13 @@
  */
 package edu.cmu.sv.modelinference.eventtool;
 
-import java.util.LinkedList;
-import java.util.List;
-
 /**
+ * Smooths with the mean of the window. The mean is computed from a running 
+ * sum that is compensated for rounding errors (Neumaier summation). It is not
+ * bit-identical to summing the window directly: the two differ by a few units 
+ * in the last place of the mean of the absolute values of the window. If the 
+ * values of the window cancel, the difference can be large relative to the mean itself.
+ * 
  * @author Kasper Luckow
  *
  */
@@ -33,11 +36,90 @@ public class UnweightedRectangularSmoothingFilter extends RectangularSmoothingFi
   }
   
   @Override
-  protected double computeMean(List<Double> data) {
-    double mean = 0;
-    for(double d : data) {
-      mean += d;
+  public Smoother createSmoother() {
+    return new MeanSmoother(isBounded() ? getWindowSize() + 1 : -1);
+  }
+  
+  private static class MeanSmoother implements Smoother {
+    //ring buffer with the values of the window, null if unbounded
+    private final double[] window;
+    private int newest = -1;
+    private int size = 0;
+    private double sum = 0;
+    private double compensation = 0;
+    //infinite and NaN values are not part of the compensated sum
+    private int nonFinite = 0;
+    private double nonFiniteSum = 0;
+    
+    MeanSmoother(int capacity) {
+      this.window = (capacity > 0) ? new double[capacity] : null;
+    }
+
+    @Override
+    public double next(double y) {
+      size++;
+      if(window != null) {
+        newest = (newest + 1) % window.length;
+        if(size > window.length) {
+          remove(window[newest]);
+          size--;
+        }
+        window[newest] = y;
+      }
+      add(y);
+      if(window != null && newest == window.length - 1)
+        resync();
+      if(nonFinite > 0) {
+        if(window != null)
+          return computeMean();
+        return (nonFiniteSum + (sum + compensation)) / (double)size;
+      }
+      return (sum + compensation) / (double)size;
+    }
+    
+    private void add(double y) {
+      if(Double.isFinite(y))
+        addCompensated(y);
+      else {
+        nonFinite++;
+        nonFiniteSum += y;
+      }
+    }
+    
+    private void remove(double y) {
+      if(Double.isFinite(y))
+        addCompensated(-y);
+      else
+        nonFinite--;
+    }
+    
+    private void addCompensated(double y) {
+      double t = sum + y;
+      if(Math.abs(sum) >= Math.abs(y))
+        compensation += (sum - t) + y;
+      else
+        compensation += (y - t) + sum;
+      sum = t;
+    }
+    
+    //recomputes the sum of the window once per revolution of the ring buffer, so the errors
+    //of adding and removing values do not accumulate
+    private void resync() {
+      sum = 0;
+      compensation = 0;
+      for(int i = 0; i < size; i++) {
+        if(Double.isFinite(window[i]))
+          addCompensated(window[i]);
+      }
+    }
+    
+    //the mean summed newest first
+    private double computeMean() {
+      double mean = 0;
+      for(int i = 0; i < size; i++) {
+        mean += window[(newest - i + window.length) % window.length];
+      }
+      return mean / (double)size;
     }
-    return mean / (double)data.size();
   }
 }
@@ -37,6 +37,7 @@ import edu.cmu.sv.modelinference.common.api.LogHandler;
 import edu.cmu.sv.modelinference.common.api.LogProcessingException;
 import edu.cmu.sv.modelinference.common.formats.DataPointCollection;
 import edu.cmu.sv.modelinference.common.formats.ValueTrackerProducer;
+import edu.cmu.sv.modelinference.common.generators.LogEntry;
 import edu.cmu.sv.modelinference.eventtool.AvgEventGenerator;
 import edu.cmu.sv.modelinference.eventtool.EWMASmoothingFilter;
 import edu.cmu.sv.modelinference.eventtool.EventDetector;
@@ -45,8 +46,9 @@ import edu.cmu.sv.modelinference.eventtool.EventVisualizer;
 import edu.cmu.sv.modelinference.eventtool.FeatureExtractor;
 import edu.cmu.sv.modelinference.eventtool.MovingAverageEventDetector;
 import edu.cmu.sv.modelinference.eventtool.RoCExtractor;
-import edu.cmu.sv.modelinference.eventtool.classification.Clusterer1D;
+import edu.cmu.sv.modelinference.eventtool.StreamingEventDetector;
 import edu.cmu.sv.modelinference.eventtool.classification.EventClassifier;
+import edu.cmu.sv.modelinference.eventtool.classification.OptimalClusterer1D;
 
 
 /**
@@ -59,6 +61,7 @@ public class Log2EventClass implements LogHandler<Void> {
   private static final String ALARM_ARG = "alarm";
   private static final String MOVING_AVG_DETECT_SIZE_ARG = "mad";
   private static final String MOVING_AVG_FEAT_SIZE_ARG = "maf";
+  private static final String STREAM_ARG = "stream";
   private static final String HELP_ARG = "help";
   
   private static final int DEFAULT_CLASSES = 6;
@@ -99,17 +102,20 @@ public class Log2EventClass implements LogHandler<Void> {
     
     Option help = new Option(HELP_ARG, "print this message");    
     Option clusters = Option.builder(CLASSES_ARG).argName("number").hasArg()
-        .desc("Specify number of clusters/event classes. Default is " + DEFAULT_CLASSES).build();
+        .desc("Specify the maximum number of clusters/event classes. Default is " + DEFAULT_CLASSES).build();
     Option alarm = Option.builder(ALARM_ARG).argName("number").hasArg()
         .desc("Specify size of upper and lower control limits in terms of number of std dev from expected val. Default is " + DEFAULT_ALARM_LEVEL).build();
     Option mvRaw = Option.builder(MOVING_AVG_DETECT_SIZE_ARG).argName("number").hasArg()
         .desc("Specify size of moving average for event detection. Default is " + DEFAULT_DETECT_WINDOWSIZE).build();
     Option mvFeat = Option.builder(MOVING_AVG_FEAT_SIZE_ARG).argName("number").hasArg()
         .desc("Specify size of moving average for smoothing feat data. Default is " + DEFAULT_FEAT_WINDOWSIZE).build();
+    Option stream = Option.builder(STREAM_ARG)
+        .desc("Detect the events while reading the log and print them instead of classifying and charting them").build();
     options.addOption(clusters);
     options.addOption(alarm);
     options.addOption(mvRaw);
     options.addOption(mvFeat);
+    options.addOption(stream);
     options.addOption(help);
     return options;
   }
@@ -159,6 +165,15 @@ public class Log2EventClass implements LogHandler<Void> {
     
     ValueTrackerProducer<?, DataPointCollection, ?> valueExtractor = logHandler.process(logFile, logType, cmd.getArgs());
     
+    if(cmd.hasOption(STREAM_ARG)) {
+      try {
+        detectEvents(valueExtractor, new File(logFile));
+      } catch (IOException e) {
+        throw new LogProcessingException(e);
+      }
+      return null;
+    }
+    
     Map<String, DataPointCollection> rawData;
     try {
       rawData = valueExtractor.computeDataSet(new File(logFile));
@@ -173,6 +188,22 @@ public class Log2EventClass implements LogHandler<Void> {
     return null;
   }
   
+  private <T extends LogEntry, U> void detectEvents(ValueTrackerProducer<T, ?, U> valueExtractor, File logFile) throws IOException {
+    StreamingEventDetector.Builder<T> bldr = new StreamingEventDetector.Builder<T>(
+        entry -> ((Number)valueExtractor.getData(entry)).doubleValue(),
+        new MovingAverageEventDetector(this.movingAvgDetection, this.alarmSize),
+        new RoCExtractor(),
+        (producer, period, feature) -> System.out.println(producer + " [" + period.lowerEndpoint() + ", " 
+            + period.upperEndpoint() + "): " + feature));
+    
+    StreamingEventDetector<T> detector = bldr
+        .addRawDataSmoothingFilter(new EWMASmoothingFilter(this.movingAvgSizeFeat, 0.1))
+        .addFeatureSmoothingFilter(new EWMASmoothingFilter(this.movingAvgSizeFeat, 0.1))
+        .build();
+    valueExtractor.processLog(logFile, detector);
+    detector.flush();
+  }
+  
   private void performAnalysis(String producer, double[][] rawData) {
 
     //Feature: slope/rate-of-change
@@ -183,7 +214,7 @@ public class Log2EventClass implements LogHandler<Void> {
 
     EventGenerator eventGenerator = new AvgEventGenerator();
     
-    EventClassifier classifier = new Clusterer1D(this.clusterNum, 100, 3000);
+    EventClassifier classifier = new OptimalClusterer1D(this.clusterNum);
     
     EventVisualizer.Builder bldr = new EventVisualizer.Builder(movingAvg,
               slopeExtractor, eventGenerator, classifier);
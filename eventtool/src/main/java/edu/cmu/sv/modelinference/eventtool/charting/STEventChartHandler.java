@@ -30,12 +30,10 @@ import edu.cmu.sv.modelinference.common.formats.DataPointCollection;
 import edu.cmu.sv.modelinference.common.formats.ValueTrackerProducer;
 import edu.cmu.sv.modelinference.common.formats.st.STConfig;
 import edu.cmu.sv.modelinference.common.formats.st.STEntry;
-import edu.cmu.sv.modelinference.common.formats.st.STParser;
 import edu.cmu.sv.modelinference.common.formats.st.STValueTracker;
 import edu.cmu.sv.modelinference.common.formats.st.STValueTracker.FIELD;
 import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
 import edu.cmu.sv.modelinference.common.parser.LogReader;
-import edu.cmu.sv.modelinference.common.parser.SequentialLogReader;
 
 /**
  * @author Kasper Luckow
@@ -46,6 +44,7 @@ public class STEventChartHandler implements LogHandler<ValueTrackerProducer<?, D
   private static final Logger logger = LoggerFactory.getLogger(STEventChartHandler.class);
   private static final String FIELD_OPTS_ARG = "field";
   private static final String FLIGHTNAME_OPTS_ARG = "flightname";
+  private static final String PARALLEL_OPTS_ARG = "parallel";
   
   private boolean hasFlightName = false;
   private FIELD trackedField = null;
@@ -75,9 +74,13 @@ public class STEventChartHandler implements LogHandler<ValueTrackerProducer<?, D
     
     Option flightNameOpt = Option.builder(FLIGHTNAME_OPTS_ARG).argName("Flight name").hasArg()
           .desc("Filter out everything but this flight name").required(false).build();
+    
+    Option parallelOpt = Option.builder(PARALLEL_OPTS_ARG)
+          .desc("Parse the log in parallel. Entries are still processed in log order.").required(false).build();
 
     options.addOption(addOpts);
     options.addOption(flightNameOpt);
+    options.addOption(parallelOpt);
     return options;
   }
   
@@ -123,9 +126,9 @@ public class STEventChartHandler implements LogHandler<ValueTrackerProducer<?, D
               return false;
             }
           };
-      reader = new SequentialLogReader<>(new STParser(), filter);
+      reader = STConfig.createLogReader(cmd.hasOption(PARALLEL_OPTS_ARG), filter);
     } else
-      reader = new SequentialLogReader<>(new STParser());
+      reader = STConfig.createLogReader(cmd.hasOption(PARALLEL_OPTS_ARG), null);
     
     return new STValueTracker.STDataPointsGenerator(trackedField, reader);
   }
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.eventtool.classification;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.TreeMultiset;
+
+/**
+ * Optimal k-means clustering of the (one dimensional) event features, in the style of 
+ * Ckmeans.1d.dp: the features are sorted once, and dynamic programming finds the 
+ * partitions into consecutive runs with the least sum of squared deviations for 
+ * every k up to maxK. Since the optimal start of the last cluster is monotone in 
+ * the number of clustered features, each k is solved in O(n log n) by divide and conquer.
+ * The number of classes is chosen by the Bayesian information criterion of the 
+ * clusterings (as in X-means, with a variance shared by all clusters). The result is 
+ * deterministic. Events with infinite or NaN features are put in a class of their own.
+ * 
+ * @author Kasper Luckow
+ *
+ */
+public class OptimalClusterer1D implements EventClassifier {
+  
+  private static final Logger logger = LoggerFactory.getLogger(OptimalClusterer1D.class);
+  
+  private final static int MAX_K_DEFAULT = 5;
+  
+  private final int maxK;
+  
+  public OptimalClusterer1D(int maxK) {
+    checkArgument(maxK > 0);
+    this.maxK = maxK;
+  }
+  
+  public OptimalClusterer1D() {
+    this(MAX_K_DEFAULT);
+  }
+  
+  private static final Comparator<Event> FEATURE_ORDER = new Comparator<Event>() {
+    @Override
+    public int compare(Event o1, Event o2) {
+      return Double.compare(o1.getFeature().getData(), o2.getFeature().getData());
+    }
+  };
+
+  @Override
+  public ClassificationResult classify(Collection<Event> events) {
+    List<Event> sorted = new ArrayList<>(events.size());
+    List<Event> nonFinite = new ArrayList<>();
+    for(Event event : events) {
+      if(Double.isFinite(event.getFeature().getData()))
+        sorted.add(event);
+      else
+        nonFinite.add(event);
+    }
+    sorted.sort(FEATURE_ORDER);
+    
+    int n = sorted.size();
+    double[] xs = new double[n];
+    for(int i = 0; i < n; i++)
+      xs[i] = sorted.get(i).getFeature().getData();
+    
+    LinkedList<EventClass> clusters = new LinkedList<>();
+    if(n > 0) {
+      Partitioner partitioner = new Partitioner(xs, Math.min(maxK, countDistinct(xs)));
+      int k = partitioner.selectK();
+      logger.info("Constructed cluster with " + k + " classes");
+      int[] starts = partitioner.getClusterStarts(k);
+      for(int c = 0; c < k; c++) {
+        int end = (c + 1 < k) ? starts[c + 1] : n;
+        clusters.addLast(createClass(sorted.subList(starts[c], end)));
+      }
+    }
+    if(!nonFinite.isEmpty())
+      clusters.addLast(createClass(nonFinite));
+    return new ClassificationResult(clusters);
+  }
+  
+  private static EventClass createClass(Collection<Event> events) {
+    TreeMultiset<Event> clusterDataPoints = TreeMultiset.create(FEATURE_ORDER);
+    clusterDataPoints.addAll(events);
+    return new EventClass(clusterDataPoints);
+  }
+  
+  private static int countDistinct(double[] sortedXs) {
+    int distinct = 0;
+    for(int i = 0; i < sortedXs.length; i++) {
+      if(i == 0 || sortedXs[i] != sortedXs[i - 1])
+        distinct++;
+    }
+    return distinct;
+  }
+  
+  /**
+   * Computes the optimal partitions of sorted values into 1 to maxK clusters
+   */
+  private static class Partitioner {
+    private final int n;
+    private final int maxK;
+    //prefix sums of the values and of their squares, shifted by the median for numerical stability
+    private final double[] sum;
+    private final double[] sumSq;
+    //sse[k - 1][i]: least sum of squared deviations of clustering the first i + 1 values into k clusters
+    private final double[][] sse;
+    //start[k - 1][i]: the start of the last cluster in that clustering
+    private final int[][] start;
+    
+    Partitioner(double[] xs, int maxK) {
+      this.n = xs.length;
+      this.maxK = maxK;
+      this.sum = new double[n + 1];
+      this.sumSq = new double[n + 1];
+      double median = xs[n / 2];
+      for(int i = 0; i < n; i++) {
+        double x = xs[i] - median;
+        sum[i + 1] = sum[i] + x;
+        sumSq[i + 1] = sumSq[i] + x * x;
+      }
+      this.sse = new double[maxK][n];
+      this.start = new int[maxK][n];
+      for(int i = 0; i < n; i++)
+        sse[0][i] = cost(0, i);
+      for(int k = 2; k <= maxK; k++)
+        fill(k, k - 1, n - 1, k - 1, n - 1);
+    }
+    
+    //sum of squared deviations of the values from j to i (inclusive) from their mean
+    private double cost(int j, int i) {
+      int size = i - j + 1;
+      double s = sum[i + 1] - sum[j];
+      return Math.max(sumSq[i + 1] - sumSq[j] - s * s / size, 0);
+    }
+    
+    //computes sse[k - 1][i] for i in [iLo, iHi], knowing that the start of the last cluster is in [jLo, jHi]
+    private void fill(int k, int iLo, int iHi, int jLo, int jHi) {
+      while(iLo <= iHi) {
+        int mid = (iLo + iHi) >>> 1;
+        int bestJ = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for(int j = Math.max(jLo, k - 1); j <= Math.min(jHi, mid); j++) {
+          double val = sse[k - 2][j - 1] + cost(j, mid);
+          if(val < best) {
+            best = val;
+            bestJ = j;
+          }
+        }
+        sse[k - 1][mid] = best;
+        start[k - 1][mid] = bestJ;
+        fill(k, iLo, mid - 1, jLo, bestJ);
+        //continue with the right half iteratively
+        iLo = mid + 1;
+        jLo = bestJ;
+      }
+    }
+    
+    /**
+     * @return the number of clusters with the greatest BIC
+     */
+    int selectK() {
+      int bestK = 1;
+      double bestBic = Double.NEGATIVE_INFINITY;
+      for(int k = 1; k <= maxK; k++) {
+        double err = sse[k - 1][n - 1];
+        if(err == 0) //a perfect fit; more clusters only add parameters
+          return k;
+        if(n <= k)
+          break;
+        double bic = computeBIC(k, err);
+        if(bic > bestBic) {
+          bestBic = bic;
+          bestK = k;
+        }
+      }
+      return bestK;
+    }
+    
+    private double computeBIC(int k, double err) {
+      double variance = err / (double)(n - k);
+      double logLikelihood = -n / 2.0 * Math.log(2 * Math.PI * variance) - (n - k) / 2.0 - n * Math.log(n);
+      int[] starts = getClusterStarts(k);
+      for(int c = 0; c < k; c++) {
+        int size = ((c + 1 < k) ? starts[c + 1] : n) - starts[c];
+        logLikelihood += size * Math.log(size);
+      }
+      //k - 1 mixing weights, k means and the variance
+      int params = 2 * k;
+      return logLikelihood - params / 2.0 * Math.log(n);
+    }
+    
+    /**
+     * @return the index of the first value of each of the k clusters
+     */
+    int[] getClusterStarts(int k) {
+      int[] starts = new int[k];
+      int end = n - 1;
+      for(int c = k; c >= 1; c--) {
+        int s = (c > 1) ? start[c - 1][end] : 0;
+        starts[c - 1] = s;
+        end = s - 1;
+      }
+      return starts;
+    }
+  }
+}
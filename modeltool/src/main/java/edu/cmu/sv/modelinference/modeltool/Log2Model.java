@@ -38,7 +38,9 @@ import edu.cmu.sv.modelinference.common.api.LogProcessingException;
 import edu.cmu.sv.modelinference.common.model.Model;
 import edu.cmu.sv.modelinference.common.model.pp.Format;
 import edu.cmu.sv.modelinference.common.model.pp.PrettyPrinter;
+import edu.cmu.sv.modelinference.modeltool.handlers.PrismExplicitLog2ModelHandler;
 import edu.cmu.sv.modelinference.modeltool.handlers.PrismLog2ModelHandler;
+import edu.cmu.sv.modelinference.modeltool.handlers.PrismStreamingLog2ModelHandler;
 import edu.cmu.sv.modelinference.modeltool.handlers.STLog2ModelHandler;
 import edu.cmu.sv.modelinference.modeltool.handlers.UppaalLog2ModelHandler;
 import edu.cmu.sv.modelinference.modeltool.mc.ModelAdapter;
@@ -55,6 +57,7 @@ public class Log2Model implements LogHandler<Void> {
   private static final String MODEL_CHECKER_ARG = "m";
   private static final String PROPERTIES_ARG = "p";
   private static final String TO_DOT_ARG = "v";
+  private static final String COMPRESS_ARG = "z";
 
   private static final Logger logger = LoggerFactory.getLogger(Log2Model.class.getName());
 
@@ -82,6 +85,8 @@ public class Log2Model implements LogHandler<Void> {
     
     //Add supported model checkers
     modelCheckerHandlers.add(PrismLog2ModelHandler.getInstance());
+    modelCheckerHandlers.add(PrismStreamingLog2ModelHandler.getInstance());
+    modelCheckerHandlers.add(PrismExplicitLog2ModelHandler.getInstance());
     modelCheckerHandlers.add(UppaalLog2ModelHandler.getInstance());
   }
 
@@ -101,12 +106,15 @@ public class Log2Model implements LogHandler<Void> {
         .desc("Specify output path of resulting models").required().build();
 
     Option toDot = Option.builder(TO_DOT_ARG).desc("Output model to DOT").build();
+    
+    Option compress = Option.builder(COMPRESS_ARG).desc("Compress the resulting model with gzip").build();
 
     //options.addOption(runModelChecker);
     //options.addOption(properties);
     options.addOption(modelChecker);
     options.addOption(outputPath);
     options.addOption(toDot);
+    options.addOption(compress);
     options.addOption(help);
     return options;
   }
@@ -190,6 +198,16 @@ public class Log2Model implements LogHandler<Void> {
     }
     logger.info("Using model checker for: " + modelCheckerHandler.getHandlerName());
     
+    ModelCheckerAdapter<?, ?> modelChecker = modelCheckerHandler.process(logFile, logType, cmd.getArgs());
+    logger.info("Generating model checker took: " + sw.elapsed(TimeUnit.MILLISECONDS) + "ms");
+    
+    if(cmd.hasOption(COMPRESS_ARG) && !modelChecker.supportsCompressedOutput()) {
+      String err = "Compressed output is not supported for model checker " + modelCheckerHandler.getHandlerName();
+      logger.error(err);
+      System.err.println(err);
+      Util.printHelpAndExit(Log2Model.class, cmdOpts);
+    }
+    
     String outputPath = cmd.getOptionValue(OUTPUT_ARG);
     logger.info("Outputting to " + outputPath);
     
@@ -197,9 +215,6 @@ public class Log2Model implements LogHandler<Void> {
     Model<?> irmodel = intermediateModelHandler.process(logFile, logType, cmd.getArgs());
     logger.info("Generating intermediate model took: " + sw.elapsed(TimeUnit.MILLISECONDS) + "ms");
     
-    ModelCheckerAdapter<?, ?> modelChecker = modelCheckerHandler.process(logFile, logType, cmd.getArgs());
-    logger.info("Generating model checker took: " + sw.elapsed(TimeUnit.MILLISECONDS) + "ms");
-    
     if(runModelChecker) {
       throw new LogProcessingException("Running model checker is not supported yet.");
       //String props = cmd.getOptionValue(PROPERTIES_ARG);
@@ -209,7 +224,10 @@ public class Log2Model implements LogHandler<Void> {
       logger.info("Generating final model took: " + sw.elapsed(TimeUnit.MILLISECONDS) + "ms");
       logger.info("Saving model to " + outputPath);
       try {
-        model.writeModelToFile(outputPath);
+        if(cmd.hasOption(COMPRESS_ARG))
+          model.writeCompressedModelToFile(outputPath);
+        else
+          model.writeModelToFile(outputPath);
       } catch (IOException e) {
         logger.error(e.getMessage());
         throw new LogProcessingException(e);
@@ -33,6 +33,7 @@ import edu.cmu.sv.modelinference.common.formats.st.GridState;
 import edu.cmu.sv.modelinference.common.formats.st.STConfig;
 import edu.cmu.sv.modelinference.common.formats.st.STConfig.GridPartitions;
 import edu.cmu.sv.modelinference.common.formats.st.STModelInferer;
+import edu.cmu.sv.modelinference.common.formats.st.util.DimensionsProvider;
 import edu.cmu.sv.modelinference.common.model.Model;
 import edu.cmu.sv.modelinference.common.model.ModelInferer;
 
@@ -44,6 +45,11 @@ public class STLog2ModelHandler implements LogHandler<Model<?>> {
   private static final Logger logger = LoggerFactory.getLogger(STLog2ModelHandler.class.getName());
 
   private static final String GRID_DIM = "dim";
+  private static final String BOUNDING_BOX = "bbox";
+  private static final String DIM_INDEX = "dimindex";
+  private static final String DIM_SAMPLE = "dimsample";
+  private static final String SHARDS = "shards";
+  private static final String PARALLEL = "parallel";
   
   private static STLog2ModelHandler instance = null;
   
@@ -66,7 +72,28 @@ public class STLog2ModelHandler implements LogHandler<Model<?>> {
     Option addOpts = Option.builder(GRID_DIM).argName("Grid Dimensions").hasArg()
           .desc("Dimensions of the grid projected on the airfield. Format: NUMxNUM.").build();
     
+    Option bboxOpt = Option.builder(BOUNDING_BOX).argName("Bounding Box").hasArg()
+          .desc("Bounding box of the grid. Avoids reading the log twice. Format: minX,minY,maxX,maxY.").build();
+    
+    Option indexOpt = Option.builder(DIM_INDEX)
+          .desc("Read the grid bounds from an index file next to the log. The index is created if it does not exist.").build();
+    
+    Option sampleOpt = Option.builder(DIM_SAMPLE)
+          .desc("Estimate the grid bounds from samples of the log instead of reading all of it. "
+              + "Positions outside the estimate belong to the boundary cells.").build();
+    
+    Option shardsOpt = Option.builder(SHARDS).argName("Shards").hasArg()
+          .desc("Split the log into this many shards and build the model from them in parallel.").build();
+    
+    Option parallelOpt = Option.builder(PARALLEL)
+          .desc("Parse the log in parallel. Entries are still processed in log order.").build();
+    
     options.addOption(addOpts);
+    options.addOption(bboxOpt);
+    options.addOption(indexOpt);
+    options.addOption(sampleOpt);
+    options.addOption(shardsOpt);
+    options.addOption(parallelOpt);
     return options;
   }
 
@@ -88,18 +115,23 @@ public class STLog2ModelHandler implements LogHandler<Model<?>> {
     }
     
     Model<?> model = null;
-    ModelInferer<GridState> modelInferer = null;
-    if(cmd.hasOption(GRID_DIM)) {
-      String partStr = cmd.getOptionValue(GRID_DIM).trim();
-      GridPartitions parts;
-      try {
-        parts = STConfig.extractGridPartitions(partStr);
-      } catch (ParseException e) {
-        throw new LogProcessingException(e);
-      }
-      modelInferer = new STModelInferer(parts.horiz, parts.vert);
-    } else
-      modelInferer = new STModelInferer(STModelInferer.DEF_PARTITIONS, STModelInferer.DEF_PARTITIONS);
+    GridPartitions parts;
+    DimensionsProvider dimProvider;
+    int shards = 1;
+    try {
+      if(cmd.hasOption(GRID_DIM))
+        parts = STConfig.extractGridPartitions(cmd.getOptionValue(GRID_DIM).trim());
+      else
+        parts = GridPartitions.createDefault();
+      dimProvider = STConfig.createDimensionsProvider(cmd.getOptionValue(BOUNDING_BOX), 
+          cmd.hasOption(DIM_INDEX), cmd.hasOption(DIM_SAMPLE), cmd.hasOption(PARALLEL));
+      if(cmd.hasOption(SHARDS))
+        shards = Integer.parseInt(cmd.getOptionValue(SHARDS).trim());
+    } catch (ParseException | NumberFormatException e) {
+      throw new LogProcessingException(e);
+    }
+    ModelInferer<GridState> modelInferer = new STModelInferer(parts.horiz, parts.vert, dimProvider, shards, 
+        cmd.hasOption(PARALLEL));
     
     try {
       model = modelInferer.generateModel(logFile);
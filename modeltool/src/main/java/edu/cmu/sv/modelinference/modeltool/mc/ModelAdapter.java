@@ -33,4 +33,13 @@ public abstract class ModelAdapter<T> {
   }
   
   public abstract void writeModelToFile(String basePath) throws IOException;
+  
+  /**
+   * Writes the model gzip compressed. Only supported if the model checker adapter
+   * that generated the model supports it, see {@link ModelCheckerAdapter#supportsCompressedOutput()}.
+   * @throws UnsupportedOperationException if the model format does not support it
+   */
+  public void writeCompressedModelToFile(String basePath) throws IOException {
+    throw new UnsupportedOperationException("Compressed output is not supported by " + getClass().getSimpleName());
+  }
 }
@@ -19,7 +19,6 @@ import java.util.Collection;
 
 import edu.cmu.sv.modelinference.common.model.Model;
 import edu.cmu.sv.modelinference.common.model.ModelVisitor;
-import edu.cmu.sv.modelinference.common.model.State;
 
 /**
  * @author Kasper Luckow
@@ -28,8 +27,6 @@ import edu.cmu.sv.modelinference.common.model.State;
 public abstract class ModelCheckerAdapter<T, S> implements ModelVisitor {
 	
 	public ModelAdapter<T> generateModel(Model<?> irModel) {
-	  for(State s : irModel.getStates())
-	    s.setVisited(false);
 	  initModelGenerator(irModel);
 	  irModel.accept(this);
 	  finishModelGenerator(irModel);
@@ -43,6 +40,14 @@ public abstract class ModelCheckerAdapter<T, S> implements ModelVisitor {
   
   public abstract ModelCheckerResult executeModelChecker(ModelAdapter<T> model, Collection<PropertyAdapter<S>> properties) throws ModelCheckerException;
 
+  /**
+   * @return true if the generated models can be written gzip compressed 
+   * (see {@link ModelAdapter#writeCompressedModelToFile(String)})
+   */
+  public boolean supportsCompressedOutput() {
+    return false;
+  }
+
 	protected abstract void initModelGenerator(Model<?> model);
 	protected abstract void finishModelGenerator(Model<?> model);
 	protected abstract ModelAdapter<T> getGeneratedModel();
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.modeltool.mc.prism;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import edu.cmu.sv.modelinference.common.model.Assignment;
+import edu.cmu.sv.modelinference.common.model.CSRModel;
+import edu.cmu.sv.modelinference.common.model.Model;
+import edu.cmu.sv.modelinference.common.model.State;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelAdapter;
+
+/**
+ * Writes the model in PRISM's explicit formats: the states (.sta), the transitions 
+ * (.tra) and the labels (.lab). The states are numbered by their state id. The 
+ * initial state is labelled "init". States without outgoing transitions get a 
+ * self loop and are labelled "deadlock". The files are written state by state 
+ * from a {@link CSRModel} view of the intermediate model with the rows sorted by 
+ * destination, the order PRISM expects.
+ * 
+ * @author Kasper Luckow
+ */
+public class PrismExplicitModel extends ModelAdapter<Model<?>> {
+  
+  public static final String BASE_NAME = "model";
+  
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int DEF_VAL = 0;
+
+  public PrismExplicitModel(Model<?> model) {
+    super(model);
+  }
+
+  @Override
+  public void writeModelToFile(String basePath) throws IOException {
+    writeModel(new File(basePath), BASE_NAME, false);
+  }
+  
+  @Override
+  public void writeCompressedModelToFile(String basePath) throws IOException {
+    writeModel(new File(basePath), BASE_NAME, true);
+  }
+  
+  public static File getStatesFile(File dir, String baseName) {
+    return new File(dir, baseName + ".sta");
+  }
+  
+  public static File getTransitionsFile(File dir, String baseName) {
+    return new File(dir, baseName + ".tra");
+  }
+  
+  public static File getLabelsFile(File dir, String baseName) {
+    return new File(dir, baseName + ".lab");
+  }
+  
+  void writeModel(File dir, String baseName, boolean compress) throws IOException {
+    String suffix = compress ? ".gz" : "";
+    List<String> vars = new ArrayList<>(this.model.getModelVariables());
+    CSRModel<?> csr = this.model.toCSR(true);
+    try(Writer out = openWriter(new File(getStatesFile(dir, baseName).getPath() + suffix), compress)) {
+      writeStates(csr, vars, out);
+    }
+    try(Writer out = openWriter(new File(getTransitionsFile(dir, baseName).getPath() + suffix), compress)) {
+      writeTransitions(csr, out);
+    }
+    try(Writer out = openWriter(new File(getLabelsFile(dir, baseName).getPath() + suffix), compress)) {
+      writeLabels(csr, out);
+    }
+  }
+  
+  private static Writer openWriter(File file, boolean compress) throws IOException {
+    OutputStream os = new FileOutputStream(file);
+    if(compress)
+      os = new GZIPOutputStream(os, BUFFER_SIZE);
+    return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.US_ASCII), BUFFER_SIZE);
+  }
+  
+  private static void writeStates(CSRModel<?> csr, List<String> vars, Writer out) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append('(');
+    for(int i = 0; i < vars.size(); i++) {
+      if(i > 0)
+        sb.append(',');
+      sb.append(vars.get(i));
+    }
+    sb.append(")\n");
+    out.append(sb);
+    for(int id = 0; id < csr.getStateCount(); id++) {
+      State state = csr.getState(id);
+      sb.setLength(0);
+      sb.append(id).append(":(");
+      for(int i = 0; i < vars.size(); i++) {
+        if(i > 0)
+          sb.append(',');
+        Assignment<?> var = state.getAssignment(vars.get(i));
+        if(var != null)
+          sb.append(var.getValue());
+        else
+          sb.append(DEF_VAL);
+      }
+      sb.append(")\n");
+      out.append(sb);
+    }
+  }
+  
+  private static void writeTransitions(CSRModel<?> csr, Writer out) throws IOException {
+    int states = csr.getStateCount();
+    long transitions = 0;
+    for(int id = 0; id < states; id++)
+      transitions += Math.max(1, csr.getOutDegree(id));
+    StringBuilder sb = new StringBuilder();
+    sb.append(states).append(' ').append(transitions).append('\n');
+    out.append(sb);
+    
+    for(int id = 0; id < states; id++) {
+      sb.setLength(0);
+      if(csr.getOutDegree(id) == 0) {
+        sb.append(id).append(' ').append(id).append(' ').append(1.0).append('\n');
+      } else {
+        for(int k = csr.getRowStart(id); k < csr.getRowEnd(id); k++) {
+          sb.append(id).append(' ').append(csr.getDestination(k)).append(' ')
+            .append(csr.getProbability(k)).append('\n');
+        }
+      }
+      out.append(sb);
+    }
+  }
+  
+  private static void writeLabels(CSRModel<?> csr, Writer out) throws IOException {
+    out.write("0=\"init\" 1=\"deadlock\"\n");
+    StringBuilder sb = new StringBuilder();
+    int init = csr.getInitStateId();
+    for(int id = 0; id < csr.getStateCount(); id++) {
+      boolean deadlock = csr.getOutDegree(id) == 0;
+      if(id != init && !deadlock)
+        continue;
+      sb.append(id).append(':');
+      if(id == init)
+        sb.append(" 0");
+      if(deadlock)
+        sb.append(" 1");
+      sb.append('\n');
+      out.append(sb);
+      sb.setLength(0);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.modeltool.mc.prism;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import edu.cmu.sv.modelinference.common.model.Model;
+import edu.cmu.sv.modelinference.common.model.State;
+import edu.cmu.sv.modelinference.common.model.Transition;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelAdapter;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelCheckerAdapter;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelCheckerResult;
+import edu.cmu.sv.modelinference.modeltool.mc.PropertyAdapter;
+import parser.ast.ModulesFile;
+import prism.ModelType;
+import prism.Prism;
+import prism.PrismException;
+
+/**
+ * Generates the model in PRISM's explicit formats, see {@link PrismExplicitModel}.
+ * When executing the model checker, PRISM loads the explicit model directly instead
+ * of constructing it from a model description.
+ * 
+ * @author Kasper Luckow
+ */
+public class PrismExplicitModelChecker extends ModelCheckerAdapter<Model<?>, String> {
+
+  private Model<?> model;
+  
+  @Override
+  public ModelAdapter<Model<?>> generateModel(Model<?> irModel) {
+    //nothing to visit: the model is traversed when it is written
+    initModelGenerator(irModel);
+    finishModelGenerator(irModel);
+    return getGeneratedModel();
+  }
+  
+  @Override
+  protected void initModelGenerator(Model<?> model) {
+    this.model = model;
+  }
+
+  @Override
+  protected void finishModelGenerator(Model<?> model) { }
+
+  @Override
+  public boolean supportsCompressedOutput() {
+    return true;
+  }
+  
+  @Override
+  protected ModelAdapter<Model<?>> getGeneratedModel() {
+    return new PrismExplicitModel(this.model);
+  }
+
+  @Override
+  public ModelCheckerResult executeModelChecker(ModelAdapter<Model<?>> model, Collection<PropertyAdapter<String>> properties) {
+    Prism prism = PrismModelChecker.createPrism();
+    File dir = null;
+    try {
+      dir = Files.createTempDirectory("prismexplicit").toFile();
+      String baseName = PrismExplicitModel.BASE_NAME;
+      new PrismExplicitModel(model.getModel()).writeModel(dir, baseName, false);
+      ModulesFile modulesFile = prism.loadModelFromExplicitFiles(PrismExplicitModel.getStatesFile(dir, baseName), 
+          PrismExplicitModel.getTransitionsFile(dir, baseName), PrismExplicitModel.getLabelsFile(dir, baseName), 
+          null, ModelType.DTMC);
+      return PrismModelChecker.checkProperties(prism, modulesFile, properties);
+    } catch (IOException | PrismException e) {
+      throw new PrismModelGeneratorException(e);
+    } finally {
+      if(dir != null) {
+        File[] files = dir.listFiles();
+        if(files != null) {
+          for(File f : files)
+            f.delete();
+        }
+        dir.delete();
+      }
+    }
+  }
+
+  @Override
+  public <S extends State> void visit(S state) { }
+
+  @Override
+  public void visit(Transition transition) { }
+
+  @Override
+  public <S extends State> void visit(Model<S> model) { }
+}
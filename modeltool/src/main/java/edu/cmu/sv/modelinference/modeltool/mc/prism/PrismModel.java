@@ -16,8 +16,12 @@
 package edu.cmu.sv.modelinference.modeltool.mc.prism;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
 
 import edu.cmu.sv.modelinference.modeltool.mc.ModelAdapter;
 import parser.ast.ModulesFile;
@@ -37,4 +41,12 @@ public class PrismModel extends ModelAdapter<ModulesFile> {
       pw.write(this.model.toString());
     }
   }
+
+  @Override
+  public void writeCompressedModelToFile(String basePath) throws IOException {
+    try(PrintWriter pw = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(
+        new FileOutputStream(new File(basePath, "model.prism.gz"))), StandardCharsets.US_ASCII))) {
+      pw.write(this.model.toString());
+    }
+  }
 }
@@ -17,11 +17,16 @@ package edu.cmu.sv.modelinference.modeltool.mc.prism;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import edu.cmu.sv.modelinference.common.model.Assignment;
+import edu.cmu.sv.modelinference.common.model.IntRange;
 import edu.cmu.sv.modelinference.common.model.Model;
 import edu.cmu.sv.modelinference.common.model.State;
 import edu.cmu.sv.modelinference.common.model.Transition;
@@ -60,19 +65,56 @@ import prism.Result;
  */
 public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String> {
   private static final String MODULE_NAME = "prismmodule";
+  
+  /**
+   * Models with at least this many states get their commands built in parallel
+   */
+  public static final int DEF_PARALLEL_THRESHOLD = 10000;
 
+  private final int parallelThreshold;
   private ModulesFile modulesFile;
   private Module module;
+  private Set<String> constantVars;
+  //the visited states whose commands are built in parallel, in the order they were visited
+  private List<State> pendingStates;
+  
+  public PrismModelChecker() {
+    this(DEF_PARALLEL_THRESHOLD);
+  }
+  
+  /**
+   * @param parallelThreshold the number of states from which the commands are 
+   * built in parallel. The commands are added to the module in the same order
+   * as when they are built sequentially. Use Integer.MAX_VALUE to always build
+   * them sequentially
+   */
+  public PrismModelChecker(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+  }
   
   @Override
   public void initModelGenerator(Model<?> model) {
     this.modulesFile = getModulesFileTemplate();
     this.module = getModuleTemplate(model, MODULE_NAME);
     this.modulesFile.addModule(this.module);
+    this.constantVars = getConstantVariables(model);
+    this.pendingStates = (model.getStateSpaceSize() >= parallelThreshold) ? 
+        new ArrayList<>(model.getStateSpaceSize()) : null;
   }
 
   @Override
   public ModelCheckerResult executeModelChecker(ModelAdapter<ModulesFile> model, Collection<PropertyAdapter<String>> properties) {
+    Prism prism = createPrism();
+    try {
+      this.modulesFile.tidyUp();
+      prism.loadPRISMModel(this.modulesFile);
+    } catch (PrismException e) {
+      throw new PrismModelGeneratorException(e);
+    }
+    return checkProperties(prism, this.modulesFile, properties);
+  }
+
+  static Prism createPrism() {
     PrismFileLog mainLog = new PrismFileLog("stdout");
     PrismFileLog techLog = new PrismFileLog("stdout");
 
@@ -82,13 +124,10 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
     } catch (PrismException e) {
       throw new PrismModelGeneratorException(e);
     }
-    try {
-      this.modulesFile.tidyUp();
-      prism.loadPRISMModel(this.modulesFile);
-    } catch (PrismException e) {
-      throw new PrismModelGeneratorException(e);
-    }
+    return prism;
+  }
 
+  static ModelCheckerResult checkProperties(Prism prism, ModulesFile modulesFile, Collection<PropertyAdapter<String>> properties) {
     StringBuilder sb = new StringBuilder();
     Iterator<PropertyAdapter<String>> propIter = properties.iterator();
     while(propIter.hasNext()) {
@@ -99,7 +138,7 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
 
     PropertiesFile propFile = null;
     try {
-      propFile = prism.parsePropertiesString(this.modulesFile, sb.toString());
+      propFile = prism.parsePropertiesString(modulesFile, sb.toString());
     } catch (PrismLangException e) {
       throw new PrismModelGeneratorException(e);
     }
@@ -122,7 +161,15 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
 
   @Override
   public void finishModelGenerator(Model<?> irmodel) {
-    //Nothing to do
+    if(pendingStates != null) {
+      List<State> states = pendingStates;
+      Command[] cmds = new Command[states.size()];
+      IntStream.range(0, cmds.length).parallel().forEach(i -> 
+        cmds[i] = getProbabilisticChoiceCmd(states.get(i), constantVars));
+      for(Command cmd : cmds)
+        this.module.addCommand(cmd);
+      pendingStates = null;
+    }
   }
 
   public static ModulesFile getModulesFileTemplate() {
@@ -159,23 +206,42 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
     return treeModule;
   }
 
-  private static Expression computeGuard(State state) {
-    return recComputeGuard(null, state.getAssignments().iterator());
+  /**
+   * @return the variables that are assigned the same value in all states of the model,
+   * including the initial state. Their value never changes, so they are left out 
+   * of guards and updates
+   */
+  static Set<String> getConstantVariables(Model<?> model) {
+    Set<String> constantVars = new HashSet<>();
+    State initialState = model.getInitState();
+    if(initialState == null)
+      return constantVars;
+    for(String modelVar : model.getModelVariables()) {
+      IntRange range = model.getAssignedRange(modelVar);
+      if(range != null && range.isSingleton() && initialState.getAssignment(modelVar) != null)
+        constantVars.add(modelVar);
+    }
+    return constantVars;
   }
 
-  private static Expression recComputeGuard(Expression expr, Iterator<Assignment<?>> varIter) {
-    if(varIter.hasNext()) {
-      Assignment<?> var = varIter.next();
-      ExpressionLiteral lit = computeExpressionLiteral(var);
-      Expression eqEx = new ExpressionBinaryOp(ExpressionBinaryOp.EQ, computeExpressionIdent(var), lit);
-      Expression nxt = null;
-      if(expr != null)
-        nxt = new ExpressionBinaryOp(ExpressionBinaryOp.AND, expr, eqEx);
-      else
-        nxt = eqEx;
-      return recComputeGuard(nxt, varIter);
+  private static Expression computeGuard(State state, Set<String> constantVars) {
+    List<Expression> conjuncts = new ArrayList<>(state.getAssignments().size());
+    for(Assignment<?> var : state.getAssignments()) {
+      if(!constantVars.contains(var.getName()))
+        conjuncts.add(new ExpressionBinaryOp(ExpressionBinaryOp.EQ, computeExpressionIdent(var), computeExpressionLiteral(var)));
     }
-    return expr;
+    if(conjuncts.isEmpty())
+      return new ExpressionLiteral(parser.type.TypeBool.getInstance(), true);
+    //combine pairwise, so the depth of the conjunction is logarithmic in the number of variables
+    while(conjuncts.size() > 1) {
+      int n = conjuncts.size();
+      for(int i = 0; i < n / 2; i++)
+        conjuncts.set(i, new ExpressionBinaryOp(ExpressionBinaryOp.AND, conjuncts.get(2 * i), conjuncts.get(2 * i + 1)));
+      if(n % 2 == 1)
+        conjuncts.set(n / 2, conjuncts.get(n - 1));
+      conjuncts.subList((n + 1) / 2, n).clear();
+    }
+    return conjuncts.get(0);
   }
 
   private static ExpressionIdent computeExpressionIdent(Assignment<?> var) {
@@ -208,9 +274,9 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
     return new ExpressionLiteral(tp, strVal.toString());
   }
 
-  private static Command getProbabilisticChoiceCmd(State currentState) {
+  private static Command getProbabilisticChoiceCmd(State currentState, Set<String> constantVars) {
     Command cmd = new Command();
-    Expression guard = computeGuard(currentState);
+    Expression guard = computeGuard(currentState, constantVars);
     cmd.setGuard(guard);
     Updates updates = new Updates();
     if(currentState.getOutgoingTransitions().size() > 0) {
@@ -218,6 +284,8 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
         Update update = new Update();
         State dest = o.getDest();
         for(Assignment<?> v : dest.getAssignments()) {
+          if(constantVars.contains(v.getName()))
+            continue;
           update.addElement(computeExpressionIdent(v), computeExpressionLiteral(v));
         }
         if(o instanceof WeightedTransition) {
@@ -240,7 +308,11 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
 
   @Override
   public <S extends State> void visit(S state) {
-    Command cmd = getProbabilisticChoiceCmd(state);
+    if(pendingStates != null) {
+      pendingStates.add(state);
+      return;
+    }
+    Command cmd = getProbabilisticChoiceCmd(state, constantVars);
     this.module.addCommand(cmd);
   }
 
@@ -250,6 +322,11 @@ public class PrismModelChecker extends ModelCheckerAdapter<ModulesFile, String>
   @Override
   public <S extends State> void visit(Model<S> model) { }
 
+  @Override
+  public boolean supportsCompressedOutput() {
+    return true;
+  }
+  
   @Override
   protected ModelAdapter<ModulesFile> getGeneratedModel() {
     return new PrismModel(this.modulesFile);
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.modeltool.mc.prism;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Set;
+
+import edu.cmu.sv.modelinference.common.model.Assignment;
+import edu.cmu.sv.modelinference.common.model.Model;
+import edu.cmu.sv.modelinference.common.model.ModelVisitor;
+import edu.cmu.sv.modelinference.common.model.ModelWalker;
+import edu.cmu.sv.modelinference.common.model.State;
+import edu.cmu.sv.modelinference.common.model.Transition;
+import edu.cmu.sv.modelinference.common.model.WeightedTransition;
+
+/**
+ * Writes a model in the PRISM language directly to a writer, without building 
+ * the PRISM AST first. The module is the same as the one generated by the 
+ * {@link PrismModelChecker}: the variables are declared with the same bounds and 
+ * initial values, and there is one probabilistic choice command per state, 
+ * in the order the states are visited. As there, variables that are constant 
+ * in the model are left out of guards and updates. Only a single command is kept in memory
+ * at a time.
+ * 
+ * @author Kasper Luckow
+ */
+public class PrismModelWriter implements ModelVisitor {
+  
+  private static final int DEF_INIT_VAL = 0;
+  
+  private final Writer out;
+  private final Set<String> constantVars;
+  private final StringBuilder cmd = new StringBuilder();
+  
+  private PrismModelWriter(Writer out, Set<String> constantVars) {
+    this.out = out;
+    this.constantVars = constantVars;
+  }
+  
+  public static void write(Model<?> model, String moduleName, Writer out) throws IOException {
+    PrismModelWriter writer = new PrismModelWriter(out, PrismModelChecker.getConstantVariables(model));
+    out.write("dtmc\n\nmodule ");
+    out.write(moduleName);
+    out.write("\n\n");
+    writer.writeDeclarations(model);
+    out.write("\n");
+    try {
+      ModelWalker.walk(model, writer);
+    } catch(UncheckedIOException e) {
+      throw e.getCause();
+    }
+    out.write("\nendmodule\n");
+    out.flush();
+  }
+  
+  private void writeDeclarations(Model<?> model) throws IOException {
+    State initialState = model.getInitState();
+    for(String modelVar : model.getModelVariables()) {
+      int lowerBound = model.getMinAssignedVal(modelVar);
+      int upperBound = model.getMaxAssignedVal(modelVar);
+      //same adjustment as in PrismModelChecker.getModuleTemplate to avoid PRISM errors
+      if(upperBound == 0)
+        upperBound++;
+      Assignment<?> var = initialState.getAssignment(modelVar);
+      int initVal = (var != null) ? Integer.valueOf(var.getValue().toString()) : DEF_INIT_VAL;
+      cmd.setLength(0);
+      cmd.append('\t').append(modelVar).append(" : [").append(lowerBound).append("..").append(upperBound)
+        .append("] init ").append(initVal).append(";\n");
+      out.append(cmd);
+    }
+  }
+  
+  private void appendGuard(State state) {
+    boolean first = true;
+    for(Assignment<?> var : state.getAssignments()) {
+      if(constantVars.contains(var.getName()))
+        continue;
+      if(!first)
+        cmd.append('&');
+      cmd.append(var.getName()).append('=').append(var.getValue());
+      first = false;
+    }
+    if(first)
+      cmd.append("true");
+  }
+  
+  /**
+   * Appends the update of the variables to their values in the state, or to val if it 
+   * is not null. Constant variables are only included in the latter case.
+   */
+  private void appendUpdate(State state, String val) {
+    boolean first = true;
+    for(Assignment<?> var : state.getAssignments()) {
+      if(val == null && constantVars.contains(var.getName()))
+        continue;
+      if(!first)
+        cmd.append('&');
+      cmd.append('(').append(var.getName()).append("'=").append((val != null) ? val : var.getValue()).append(')');
+      first = false;
+    }
+    if(first)
+      cmd.append("true");
+  }
+  
+  private void appendProbabilisticChoice(State state) {
+    cmd.append("\t[] ");
+    appendGuard(state);
+    cmd.append(" -> ");
+    if(state.getOutgoingTransitions().size() > 0) {
+      boolean first = true;
+      for(Transition o : state.getOutgoingTransitions()) {
+        if(!(o instanceof WeightedTransition))
+          throw new IllegalStateException("Expected " + WeightedTransition.class.getName());
+        if(!first)
+          cmd.append(" + ");
+        cmd.append(((WeightedTransition)o).getNormalizedWeight()).append(':');
+        appendUpdate(o.getDest(), null);
+        first = false;
+      }
+    } else { //same as PrismModelChecker
+      cmd.append(1.0).append(':');
+      appendUpdate(state, "-1");
+    }
+    cmd.append(";\n");
+  }
+
+  @Override
+  public <S extends State> void visit(S state) {
+    cmd.setLength(0);
+    appendProbabilisticChoice(state);
+    try {
+      out.append(cmd);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void visit(Transition transition) { }
+
+  @Override
+  public <S extends State> void visit(Model<S> model) { }
+}
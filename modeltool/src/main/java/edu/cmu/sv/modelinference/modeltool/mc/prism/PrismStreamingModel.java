@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.modeltool.mc.prism;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import edu.cmu.sv.modelinference.common.model.Model;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelAdapter;
+
+/**
+ * PRISM model that is written directly from the intermediate model, see {@link PrismModelWriter}
+ * 
+ * @author Kasper Luckow
+ */
+public class PrismStreamingModel extends ModelAdapter<Model<?>> {
+  
+  public static final String MODULE_NAME = "prismmodule";
+  
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  public PrismStreamingModel(Model<?> model) {
+    super(model);
+  }
+
+  @Override
+  public void writeModelToFile(String basePath) throws IOException {
+    writeModel(new FileOutputStream(new File(basePath, "model.prism")));
+  }
+  
+  @Override
+  public void writeCompressedModelToFile(String basePath) throws IOException {
+    writeModel(new GZIPOutputStream(new FileOutputStream(new File(basePath, "model.prism.gz")), BUFFER_SIZE));
+  }
+  
+  void writeModel(File file) throws IOException {
+    writeModel(new FileOutputStream(file));
+  }
+  
+  private void writeModel(OutputStream os) throws IOException {
+    try(Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+      PrismModelWriter.write(this.model, MODULE_NAME, out);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2016 Carnegie Mellon University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.cmu.sv.modelinference.modeltool.mc.prism;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import edu.cmu.sv.modelinference.common.model.Model;
+import edu.cmu.sv.modelinference.common.model.State;
+import edu.cmu.sv.modelinference.common.model.Transition;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelAdapter;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelCheckerAdapter;
+import edu.cmu.sv.modelinference.modeltool.mc.ModelCheckerResult;
+import edu.cmu.sv.modelinference.modeltool.mc.PropertyAdapter;
+import parser.ast.ModulesFile;
+import prism.Prism;
+import prism.PrismException;
+
+/**
+ * Generates the same PRISM model as the {@link PrismModelChecker}, but writes it 
+ * directly from the intermediate model instead of building (and printing) the PRISM AST.
+ * Meant for large models that are only written to file. When executing the model 
+ * checker, the written model is parsed by PRISM.
+ * 
+ * @author Kasper Luckow
+ */
+public class PrismStreamingModelChecker extends ModelCheckerAdapter<Model<?>, String> {
+
+  private Model<?> model;
+  
+  @Override
+  public ModelAdapter<Model<?>> generateModel(Model<?> irModel) {
+    //nothing to visit: the model is traversed when it is written
+    initModelGenerator(irModel);
+    finishModelGenerator(irModel);
+    return getGeneratedModel();
+  }
+  
+  @Override
+  protected void initModelGenerator(Model<?> model) {
+    this.model = model;
+  }
+
+  @Override
+  protected void finishModelGenerator(Model<?> model) { }
+
+  @Override
+  public boolean supportsCompressedOutput() {
+    return true;
+  }
+  
+  @Override
+  protected ModelAdapter<Model<?>> getGeneratedModel() {
+    return new PrismStreamingModel(this.model);
+  }
+
+  @Override
+  public ModelCheckerResult executeModelChecker(ModelAdapter<Model<?>> model, Collection<PropertyAdapter<String>> properties) {
+    Prism prism = PrismModelChecker.createPrism();
+    File modelFile = null;
+    try {
+      modelFile = File.createTempFile("model", ".prism");
+      new PrismStreamingModel(model.getModel()).writeModel(modelFile);
+      ModulesFile modulesFile = prism.parseModelFile(modelFile);
+      prism.loadPRISMModel(modulesFile);
+      return PrismModelChecker.checkProperties(prism, modulesFile, properties);
+    } catch (IOException | PrismException e) {
+      throw new PrismModelGeneratorException(e);
+    } finally {
+      if(modelFile != null)
+        modelFile.delete();
+    }
+  }
+
+  /**
+   * Development check that PRISM parses the model written by this checker to the same 
+   * modules file as the model generated by the {@link PrismModelChecker}. Both models 
+   * are written to file and parsed, and the parsed modules files are compared by their 
+   * printed form. Since this builds and prints the AST of the whole model, it is only 
+   * meant for small models, e.g., after changing {@link PrismModelWriter}.
+   * @throws PrismModelGeneratorException if the models differ or cannot be parsed
+   */
+  public static void checkAgainstPrismModelChecker(Model<?> irModel) {
+    Prism prism = PrismModelChecker.createPrism();
+    File streamedFile = null;
+    File generatedFile = null;
+    try {
+      streamedFile = File.createTempFile("model", ".prism");
+      new PrismStreamingModel(irModel).writeModel(streamedFile);
+      generatedFile = File.createTempFile("model", ".prism");
+      ModulesFile generated = new PrismModelChecker().generateModel(irModel).getModel();
+      Files.write(generatedFile.toPath(), generated.toString().getBytes(StandardCharsets.US_ASCII));
+      
+      String streamedParsed = prism.parseModelFile(streamedFile).toString();
+      String generatedParsed = prism.parseModelFile(generatedFile).toString();
+      if(!streamedParsed.equals(generatedParsed))
+        throw new PrismModelGeneratorException("Streamed model differs from the model generated by " 
+            + PrismModelChecker.class.getSimpleName());
+    } catch (IOException | PrismException e) {
+      throw new PrismModelGeneratorException(e);
+    } finally {
+      if(streamedFile != null)
+        streamedFile.delete();
+      if(generatedFile != null)
+        generatedFile.delete();
+    }
+  }
+
+  @Override
+  public <S extends State> void visit(S state) { }
+
+  @Override
+  public void visit(Transition transition) { }
+
+  @Override
+  public <S extends State> void visit(Model<S> model) { }
+}
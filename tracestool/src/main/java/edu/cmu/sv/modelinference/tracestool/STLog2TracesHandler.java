@@ -37,12 +37,10 @@ import edu.cmu.sv.modelinference.common.formats.st.STConfig;
 import edu.cmu.sv.modelinference.common.formats.st.STConfig.GridPartitions;
 import edu.cmu.sv.modelinference.common.formats.st.STEntry;
 import edu.cmu.sv.modelinference.common.formats.st.STGridStateFactory;
-import edu.cmu.sv.modelinference.common.formats.st.STParser;
-import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder;
+import edu.cmu.sv.modelinference.common.formats.st.util.DimensionsProvider;
 import edu.cmu.sv.modelinference.common.formats.st.util.GridDimensionsFinder.Dimensions;
 import edu.cmu.sv.modelinference.common.generators.LogEntryFilter;
 import edu.cmu.sv.modelinference.common.parser.LogReader;
-import edu.cmu.sv.modelinference.common.parser.SequentialLogReader;
 import edu.cmu.sv.modelinference.tracestool.trace.TimedTrace;
 import edu.cmu.sv.modelinference.tracestool.trace.TraceGenerator;
 
@@ -54,6 +52,10 @@ public class STLog2TracesHandler implements LogHandler<Collection<TimedTrace<Gri
   public static final Logger logger = LoggerFactory.getLogger(STLog2TracesHandler.class);
   
   private static final String GRID_DIM = "dim";
+  private static final String BOUNDING_BOX = "bbox";
+  private static final String DIM_INDEX = "dimindex";
+  private static final String DIM_SAMPLE = "dimsample";
+  private static final String PARALLEL = "parallel";
   
   private static STLog2TracesHandler instance = null;
   
@@ -76,7 +78,24 @@ public class STLog2TracesHandler implements LogHandler<Collection<TimedTrace<Gri
     Option addOpts = Option.builder(GRID_DIM).argName("Grid Dimensions").hasArg()
           .desc("Dimensions of the grid projected on the airfield. Format: NUMxNUM.").build();
     
+    Option bboxOpt = Option.builder(BOUNDING_BOX).argName("Bounding Box").hasArg()
+          .desc("Bounding box of the grid. Avoids reading the log twice. Format: minX,minY,maxX,maxY.").build();
+    
+    Option indexOpt = Option.builder(DIM_INDEX)
+          .desc("Read the grid bounds from an index file next to the log. The index is created if it does not exist.").build();
+    
+    Option sampleOpt = Option.builder(DIM_SAMPLE)
+          .desc("Estimate the grid bounds from samples of the log instead of reading all of it. "
+              + "Positions outside the estimate belong to the boundary cells.").build();
+    
+    Option parallelOpt = Option.builder(PARALLEL)
+          .desc("Parse the log in parallel. Entries are still processed in log order.").build();
+    
     options.addOption(addOpts);
+    options.addOption(bboxOpt);
+    options.addOption(indexOpt);
+    options.addOption(sampleOpt);
+    options.addOption(parallelOpt);
     return options;
   }
 
@@ -97,29 +116,25 @@ public class STLog2TracesHandler implements LogHandler<Collection<TimedTrace<Gri
       Util.printHelpAndExit(STLog2TracesHandler.class, cmdOpts);
     }
 
-    GridPartitions parts = null;
-    if(cmd.hasOption(GRID_DIM)) {
-      String partStr = cmd.getOptionValue(GRID_DIM).trim();
-      try {
-        parts = STConfig.extractGridPartitions(partStr);
-      } catch (ParseException e) {
-        throw new LogProcessingException(e);
-      }
-    } else
-      parts = GridPartitions.createDefault();
-    
-    LogEntryFilter<STEntry> filter = LogEntryFilter.<STEntry>EVERYTHING();
-    
-    LogReader<STEntry> reader = new SequentialLogReader<>(new STParser(), filter);
-    GridDimensionsFinder d;
+    GridPartitions parts;
+    DimensionsProvider dimProvider;
     try {
-      d = new GridDimensionsFinder();
-    } catch (IOException e) {
+      if(cmd.hasOption(GRID_DIM))
+        parts = STConfig.extractGridPartitions(cmd.getOptionValue(GRID_DIM).trim());
+      else
+        parts = GridPartitions.createDefault();
+      dimProvider = STConfig.createDimensionsProvider(cmd.getOptionValue(BOUNDING_BOX), 
+          cmd.hasOption(DIM_INDEX), cmd.hasOption(DIM_SAMPLE), cmd.hasOption(PARALLEL));
+    } catch (ParseException e) {
       throw new LogProcessingException(e);
     }
+    
+    LogEntryFilter<STEntry> filter = LogEntryFilter.<STEntry>EVERYTHING();
+    
+    LogReader<STEntry> reader = STConfig.createLogReader(cmd.hasOption(PARALLEL), filter);
     Dimensions dim;
     try {
-      dim = d.start(new File(logFile));
+      dim = dimProvider.getDimensions(new File(logFile));
     } catch (IOException e) {
       throw new LogProcessingException(e);
     }